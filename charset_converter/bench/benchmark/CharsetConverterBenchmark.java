@@ -0,0 +1,165 @@
+package benchmark;
+
+import com.ibm.icu.text.CharsetDetector;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of detecting and transcoding a single file: old implementation (whole content in memory)
+ * against new modes (sampled detection, streaming and memory-mapped transcoding).
+ *
+ * Files per second is reported as `files` counter, content throughput as `megabytes` counter (MB/s).
+ * Run `main()` to run all benchmarks of this module with GC profiler, which reports allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CharsetConverterBenchmark {
+   @Param({"ASCII", "SHIFT_JIS", "EUC_JP", "WINDOWS_1252", "UTF8_BOM"})
+   public CharsetCorpus.Kind kind;
+
+   // 4KB and 64MB (larger than default mmap threshold)
+   @Param({"4096", "67108864"})
+   public int size;
+
+   @AuxCounters(AuxCounters.Type.OPERATIONS)
+   @State(Scope.Thread)
+   public static class Counters {
+      public long files;
+      public double megabytes;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         files = 0;
+         megabytes = 0;
+      }
+
+      void count(long byteCount) {
+         ++files;
+         megabytes += byteCount / (1024.0 * 1024.0);
+      }
+   }
+
+   private File dir;
+   private File inFile;
+   private File outFile;
+   private long inSize;
+   private Object transcoder;
+   private Object sniffer;
+
+   @Setup(Level.Trial)
+   public void setup() throws Throwable {
+      transcoder = ConverterBridge.newTranscoder(64 * 1024);
+      sniffer = ConverterBridge.newSniffer(16 * 1024, 4 * 1024, 4, 60);
+
+      dir = CharsetCorpus.createTempDir("charset-bench");
+      inFile = CharsetCorpus.write(dir, "input.csv", kind, size);
+      outFile = new File(dir, "output.csv");
+      inSize = inFile.length();
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      CharsetCorpus.deleteRecursively(dir);
+   }
+
+   @Benchmark
+   public Charset detectLegacy(Counters counters) throws Exception {
+      try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(inFile))) {
+         CharsetDetector charsetDetector = new CharsetDetector();
+         charsetDetector.setText(bis);
+         String charsetName = charsetDetector.detect().getName();
+
+         counters.count(inSize);
+
+         return charsetName == null ? null : Charset.forName(charsetName);
+      }
+   }
+
+   @Benchmark
+   public Charset detectSampled(Counters counters) throws Throwable {
+      Charset charset = ConverterBridge.sniff(sniffer, inFile);
+      counters.count(inSize);
+
+      return charset;
+   }
+
+   @Benchmark
+   public void transcodeLegacy(Counters counters) throws Exception {
+      FileInputStream fis = new FileInputStream(inFile);
+      byte[] content = fis.readAllBytes();
+      fis.close();
+
+      String input = new String(content, kind.charset);
+
+      FileOutputStream fos = new FileOutputStream(outFile);
+      fos.write(input.getBytes(StandardCharsets.UTF_8));
+      fos.close();
+
+      counters.count(inSize);
+   }
+
+   @Benchmark
+   public long transcodeStreaming(Counters counters) throws Throwable {
+      try (FileChannel in = FileChannel.open(inFile.toPath(), StandardOpenOption.READ);
+           FileChannel out = openOutput()) {
+         long written = ConverterBridge.transcode(transcoder, in, out, kind.charset, StandardCharsets.UTF_8, CodingErrorAction.REPLACE);
+         counters.count(inSize);
+
+         return written;
+      }
+   }
+
+   @Benchmark
+   public long transcodeMapped(Counters counters) throws Throwable {
+      try (FileChannel in = FileChannel.open(inFile.toPath(), StandardOpenOption.READ);
+           FileChannel out = openOutput()) {
+         long written = ConverterBridge.transcodeMapped(transcoder, in, out, kind.charset, StandardCharsets.UTF_8, CodingErrorAction.REPLACE);
+         counters.count(inSize);
+
+         return written;
+      }
+   }
+
+   private FileChannel openOutput() throws Exception {
+      return FileChannel.open(outFile.toPath(),
+         StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+   }
+
+   public static void main(String[] args) throws Exception {
+      new Runner(new OptionsBuilder()
+         .include(CharsetConverterBenchmark.class.getSimpleName())
+         .include(DirectoryWalkBenchmark.class.getSimpleName())
+         .addProfiler(GCProfiler.class)
+         .build()).run();
+   }
+}
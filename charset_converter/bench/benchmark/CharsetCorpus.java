@@ -0,0 +1,122 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates files which are used as input of benchmarks. Content is deterministic for same kind and size.
+ */
+public class CharsetCorpus {
+   public enum Kind {
+      ASCII("US-ASCII", false),
+      SHIFT_JIS("Shift_JIS", false),
+      EUC_JP("EUC-JP", false),
+      WINDOWS_1252("windows-1252", false),
+      UTF8_BOM("UTF-8", true);
+
+      final Charset charset;
+      final boolean bom;
+
+      Kind(String charsetName, boolean bom) {
+         this.charset = Charset.forName(charsetName);
+         this.bom = bom;
+      }
+   }
+
+   private static final String[] ASCII_WORDS = {
+      "id", "name", "price", "2019-04-01", "order", "customer", "total", "12345", "note", "status",
+   };
+   private static final String[] JAPANESE_WORDS = {
+      "東京都", "株式会社", "注文番号", "お客様", "合計金額", "備考", "配送先", "日本語", "テスト", "商品名",
+   };
+   private static final String[] LATIN_WORDS = {
+      "café", "naïve", "façade", "résumé", "Müller", "São", "año", "über", "crème", "fiancée",
+   };
+
+   /**
+    * @return content (as csv-like lines) of given kind, which has about `size` bytes after encoded.
+    */
+   static byte[] generate(Kind kind, int size) {
+      Random random = new Random(size * 31L + kind.ordinal());
+      StringBuilder sb = new StringBuilder(size);
+      String[] words = kind == Kind.ASCII ? ASCII_WORDS : kind == Kind.WINDOWS_1252 ? LATIN_WORDS : JAPANESE_WORDS;
+
+      // Only for estimating loop count, content is cut to `size` after encoded
+      int bytesPerChar = (kind == Kind.ASCII || kind == Kind.WINDOWS_1252) ? 1 : 2;
+
+      while (sb.length() * bytesPerChar < size) {
+         for (int column = 0; column < 8; ++column) {
+            String[] source = random.nextBoolean() ? ASCII_WORDS : words;
+            sb.append(source[random.nextInt(source.length)]).append(column < 7 ? ',' : '\n');
+         }
+      }
+
+      byte[] content = sb.toString().getBytes(kind.charset);
+      int length = Math.min(size, content.length);
+
+      // Cut at line end to not leave broken character at end of content
+      while (length > 0 && content[length - 1] != '\n') {
+         --length;
+      }
+
+      if (!kind.bom) {
+         return Arrays.copyOf(content, length);
+      }
+
+      byte[] result = new byte[length + 3];
+      result[0] = (byte) 0xEF;
+      result[1] = (byte) 0xBB;
+      result[2] = (byte) 0xBF;
+      System.arraycopy(content, 0, result, 3, length);
+
+      return result;
+   }
+
+   static File write(File dir, String fileName, Kind kind, int size) throws IOException {
+      File file = new File(dir, fileName);
+      Files.write(file.toPath(), generate(kind, size));
+      return file;
+   }
+
+   /**
+    * Create a tree of `fileCount` small files of all kinds, `filesPerDir` files per folder.
+    */
+   static void writeTree(File rootDir, int fileCount, int filesPerDir, int fileSize) throws IOException {
+      Kind[] kinds = Kind.values();
+      byte[][] contents = new byte[kinds.length][];
+
+      for (int index = 0; index < kinds.length; ++index) {
+         contents[index] = generate(kinds[index], fileSize);
+      }
+
+      for (int index = 0; index < fileCount; ++index) {
+         File dir = new File(rootDir, "dir" + (index / filesPerDir));
+
+         if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create folder " + dir);
+         }
+
+         Files.write(new File(dir, "file" + index + ".csv").toPath(), contents[index % kinds.length]);
+      }
+   }
+
+   static File createTempDir(String prefix) throws IOException {
+      return Files.createTempDirectory(prefix).toFile();
+   }
+
+   static void deleteRecursively(File file) {
+      File[] children = file.listFiles();
+
+      if (children != null) {
+         for (File child : children) {
+            deleteRecursively(child);
+         }
+      }
+
+      file.delete();
+   }
+}
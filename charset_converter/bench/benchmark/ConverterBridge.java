@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classes of the tool are in default package which can not be imported from a named package
+ * (JMH does not accept benchmarks in default package), so benchmarks access them via method handles.
+ * Cost of a handle call is nothing compared with file I/O of each benchmark operation.
+ */
+final class ConverterBridge {
+   private static final MethodHandle newTranscoder;
+   private static final MethodHandle transcode;
+   private static final MethodHandle transcodeMapped;
+   private static final MethodHandle newSniffer;
+   private static final MethodHandle sniff;
+   private static final MethodHandle newConverter;
+   private static final MethodHandle start;
+
+   static {
+      try {
+         Class<?> transcoderClass = Class.forName("CharsetTranscoder");
+         Class<?> snifferClass = Class.forName("CharsetSniffer");
+         Class<?> converterClass = Class.forName("CharsetConverter");
+
+         newTranscoder = constructor(transcoderClass, int.class);
+         transcode = method(transcoderClass, "transcode",
+            ReadableByteChannel.class, WritableByteChannel.class, Charset.class, Charset.class, CodingErrorAction.class);
+         transcodeMapped = method(transcoderClass, "transcodeMapped",
+            FileChannel.class, WritableByteChannel.class, Charset.class, Charset.class, CodingErrorAction.class);
+         newSniffer = constructor(snifferClass, int.class, int.class, int.class, int.class);
+         sniff = method(snifferClass, "sniff", File.class);
+         newConverter = constructor(converterClass, Map.class);
+         start = method(converterClass, "start");
+      }
+      catch (Exception e) {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   private ConverterBridge() {
+   }
+
+   static Object newTranscoder(int bufferSize) throws Throwable {
+      return newTranscoder.invoke(bufferSize);
+   }
+
+   static long transcode(Object transcoder, FileChannel in, FileChannel out,
+                         Charset fromCharset, Charset toCharset, CodingErrorAction action) throws Throwable {
+      return (long) transcode.invoke(transcoder, in, out, fromCharset, toCharset, action);
+   }
+
+   static long transcodeMapped(Object transcoder, FileChannel in, FileChannel out,
+                               Charset fromCharset, Charset toCharset, CodingErrorAction action) throws Throwable {
+      return (long) transcodeMapped.invoke(transcoder, in, out, fromCharset, toCharset, action);
+   }
+
+   static Object newSniffer(int headSize, int windowSize, int windowCount, int minConfidence) throws Throwable {
+      return newSniffer.invoke(headSize, windowSize, windowCount, minConfidence);
+   }
+
+   static Charset sniff(Object sniffer, File file) throws Throwable {
+      return (Charset) sniff.invoke(sniffer, file);
+   }
+
+   /**
+    * Run a whole conversion over given folder.
+    *
+    * @param mode one of {sequential, parallel, pipeline}.
+    */
+   static void convert(File inDir, String mode) throws Throwable {
+      Map<String, String> args = new LinkedHashMap<>();
+      args.put("in", inDir.getPath());
+      args.put("mode", mode);
+
+      start.invoke(newConverter.invoke(args));
+   }
+
+   private static MethodHandle constructor(Class<?> clazz, Class<?>... paramTypes) throws Exception {
+      Constructor<?> constructor = clazz.getDeclaredConstructor(paramTypes);
+      constructor.setAccessible(true);
+      return MethodHandles.lookup().unreflectConstructor(constructor);
+   }
+
+   private static MethodHandle method(Class<?> clazz, String name, Class<?>... paramTypes) throws Exception {
+      Method method = clazz.getDeclaredMethod(name, paramTypes);
+      method.setAccessible(true);
+      return MethodHandles.lookup().unreflect(method);
+   }
+}
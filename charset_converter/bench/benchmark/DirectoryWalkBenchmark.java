@@ -0,0 +1,80 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a whole run of `CharsetConverter` over a generated tree of small files of all kinds.
+ * Since a run converts files in place, each invocation runs on a new tree.
+ * Counters `files` and `megabytes` are totals of all invocations, divide them by total time for throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DirectoryWalkBenchmark {
+   @Param({"1000", "10000"})
+   public int fileCount;
+
+   @Param({"4096"})
+   public int fileSize;
+
+   @Param({"sequential", "parallel", "pipeline"})
+   public String mode;
+
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   @State(Scope.Thread)
+   public static class Counters {
+      public long files;
+      public double megabytes;
+   }
+
+   private File rootDir;
+   private File inDir;
+   private long totalSize;
+
+   @Setup(Level.Invocation)
+   public void setup() throws Exception {
+      rootDir = CharsetCorpus.createTempDir("charset-walk-bench");
+      inDir = new File(rootDir, "testdata");
+      CharsetCorpus.writeTree(inDir, fileCount, 100, fileSize);
+
+      totalSize = 0;
+
+      for (File dir : inDir.listFiles()) {
+         for (File file : dir.listFiles()) {
+            totalSize += file.length();
+         }
+      }
+   }
+
+   @TearDown(Level.Invocation)
+   public void tearDown() {
+      CharsetCorpus.deleteRecursively(rootDir);
+   }
+
+   @Benchmark
+   public void convertTree(Counters counters) throws Throwable {
+      ConverterBridge.convert(inDir, mode);
+
+      counters.files += fileCount;
+      counters.megabytes += totalSize / (1024.0 * 1024.0);
+   }
+}
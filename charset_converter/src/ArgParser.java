@@ -0,0 +1,24 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ArgParser {
+   /**
+    * Parse arguments like `key:value`. Only first `:` separates key and value,
+    * so value can be a path like `D:\data`.
+    */
+   static Map<String, String> parseArgs(String[] args) {
+      Map<String, String> map = new LinkedHashMap<>();
+
+      if (args != null) {
+         for (String arg : args) {
+            String[] arr = arg.split(":", 2);
+
+            if (arr.length == 2) {
+               map.put(arr[0], arr[1]);
+            }
+         }
+      }
+
+      return map;
+   }
+}
@@ -0,0 +1,196 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replaces target files with their fully written temporary (sibling) files by atomic rename,
+ * so a target file always has either its old content or its new content, never a partial one.
+ * Permissions, owner and ACL of target file are copied to temporary file before rename, and a symlink target
+ * is resolved, so the file which the link points to is replaced and the link is kept.
+ *
+ * With fsync, replacements are queued and committed in batches: content of all temporary files
+ * of a batch is forced to disk, then they are renamed, then their folders are forced to disk.
+ * So the kernel can write back many files together instead of waiting for each file.
+ * This is thread-safe.
+ */
+class AtomicFileReplacer {
+   private static class Pending {
+      final File tmpFile;
+      final File target;
+      final Runnable onReplaced;
+
+      Pending(File tmpFile, File target, Runnable onReplaced) {
+         this.tmpFile = tmpFile;
+         this.target = target;
+         this.onReplaced = onReplaced;
+      }
+   }
+
+   private final boolean fsync;
+   private final int batchSize;
+   private final List<Pending> pendings = new ArrayList<>();
+
+   /**
+    * @param fsync true to force content to disk before and after rename.
+    * @param batchSize number of replacements which are committed together when fsync is enabled.
+    */
+   AtomicFileReplacer(boolean fsync, int batchSize) {
+      this.fsync = fsync;
+      this.batchSize = Math.max(1, batchSize);
+   }
+
+   /**
+    * Replace `target` with `tmpFile` which was written and closed. When fsync is enabled, the replacement
+    * may be deferred until the batch is full or `flush()` is called.
+    *
+    * @param onReplaced called after `target` was replaced.
+    */
+   void replace(File tmpFile, File target, Runnable onReplaced) throws IOException {
+      if (!fsync) {
+         move(tmpFile.toPath(), target.toPath());
+         onReplaced.run();
+         return;
+      }
+
+      List<Pending> batch = null;
+
+      synchronized (pendings) {
+         pendings.add(new Pending(tmpFile, target, onReplaced));
+
+         if (pendings.size() >= batchSize) {
+            batch = new ArrayList<>(pendings);
+            pendings.clear();
+         }
+      }
+
+      if (batch != null) {
+         commit(batch);
+      }
+   }
+
+   /**
+    * Commit all deferred replacements.
+    */
+   void flush() {
+      List<Pending> batch;
+
+      synchronized (pendings) {
+         batch = new ArrayList<>(pendings);
+         pendings.clear();
+      }
+
+      commit(batch);
+   }
+
+   private void commit(List<Pending> batch) {
+      List<Pending> synced = new ArrayList<>(batch.size());
+
+      for (Pending pending : batch) {
+         try {
+            force(pending.tmpFile.toPath());
+            synced.add(pending);
+         }
+         catch (IOException e) {
+            e.printStackTrace();
+            pending.tmpFile.delete();
+         }
+      }
+
+      Set<File> dirs = new LinkedHashSet<>();
+
+      for (Pending pending : synced) {
+         try {
+            Path realTarget = move(pending.tmpFile.toPath(), pending.target.toPath());
+            dirs.add(realTarget.toAbsolutePath().getParent().toFile());
+            pending.onReplaced.run();
+         }
+         catch (IOException e) {
+            e.printStackTrace();
+            pending.tmpFile.delete();
+         }
+      }
+
+      // Persist renames. Some platforms (Windows) don't allow open a folder, just ignore it.
+      for (File dir : dirs) {
+         try {
+            force(dir.toPath());
+         }
+         catch (IOException ignored) {
+         }
+      }
+   }
+
+   /**
+    * @return path of the file which was replaced (target itself, or the file which target links to).
+    */
+   private static Path move(Path source, Path target) throws IOException {
+      if (Files.exists(target)) {
+         target = target.toRealPath();
+         copyAttributes(target, source);
+      }
+
+      try {
+         Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+         Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      return target;
+   }
+
+   /**
+    * Copy permissions, owner and group (POSIX), or ACL and owner (Windows) of `source` to `target`.
+    */
+   private static void copyAttributes(Path source, Path target) throws IOException {
+      PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+
+      if (sourceView != null) {
+         PosixFileAttributes attributes = sourceView.readAttributes();
+         PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+
+         targetView.setPermissions(attributes.permissions());
+
+         // Only privileged user can give a file to other user or group, target is kept as created then
+         try {
+            targetView.setGroup(attributes.group());
+            targetView.setOwner(attributes.owner());
+         }
+         catch (IOException ignored) {
+         }
+         return;
+      }
+
+      AclFileAttributeView aclSourceView = Files.getFileAttributeView(source, AclFileAttributeView.class);
+
+      if (aclSourceView != null) {
+         AclFileAttributeView aclTargetView = Files.getFileAttributeView(target, AclFileAttributeView.class);
+
+         aclTargetView.setAcl(aclSourceView.getAcl());
+
+         try {
+            aclTargetView.setOwner(aclSourceView.getOwner());
+         }
+         catch (IOException ignored) {
+         }
+      }
+   }
+
+   private static void force(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         channel.force(true);
+      }
+   }
+}
@@ -1,38 +1,311 @@
 import com.ibm.icu.text.CharsetDetector;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * This converts charset of all files (and its sub folder) under /testdata from a charset to another charset.
+ * This converts charset of all files (and its sub folder) under input folders from a charset to another charset.
  * <pre>{@code
  *    Input:
- *       - files: locate under directory `testdata/`, this dir is same level with `src/`.
- *       - fromCharset: source charset (define in `CharsetConverter.fromCharset`)
- *       - toCharset: destination charset (define in `CharsetConverter.toCharset`)
+ *       - files: locate under directories which are given by `in:`, default is `testdata/` at current directory.
+ *       - fromCharset: source charset (given by `from:`), or auto-detect for each file.
+ *       - toCharset: destination charset (given by `to:`), default is `UTF-8`.
  *    Output:
- *       - files under testdata/
+ *       - files under input folders are converted in place.
  * }</pre>
  *
  * Note: if you wanna run at Command Line Interface (CLI):
- * javac -classpath D:\darkcompet\contest\out\production\library_java;D:\darkcompet\contest\lib\gson-2.8.2.jar;D:\darkcompet\contest\lib\icu4j-charsetdetector-4_4_2.jar CharsetConverter.java
- * java -classpath D:\darkcompet\contest\out\production\library_java;D:\darkcompet\contest\lib\gson-2.8.2.jar;D:\darkcompet\contest\lib\icu4j-charsetdetector-4_4_2.jar CharsetConverter
+ * javac -classpath D:\darkcompet\contest\out\production\library_java;D:\darkcompet\contest\lib\gson-2.8.2.jar;D:\darkcompet\contest\lib\icu4j-charsetdetector-4_4_2.jar *.java
+ * java -classpath D:\darkcompet\contest\out\production\library_java;D:\darkcompet\contest\lib\gson-2.8.2.jar;D:\darkcompet\contest\lib\icu4j-charsetdetector-4_4_2.jar CharsetConverter in:D:\data from:SHIFT_JIS dryRun:true
+ * Run with invalid argument (like `help:`) to see all available arguments.
  */
 public class CharsetConverter {
-   //TODO: Charset you think it is charset of your files, set `null` to tell program auto-detect.
-   private Charset fromCharset = null;//Charset.forName("SHIFT_JIS");
-   //TODO: Charset which program will convert to, if you set it to `null` then program will use `UTF-8` instead.
-   private final Charset toCharset = StandardCharsets.UTF_8;
+   private static final String[][] ARGUMENTS = {
+      {"in", "testdata", "Input folders, separated by `,`."},
+      {"include", "", "Glob patterns (separated by `,`) of files to convert, default is all files. Pattern without `/` is matched with file name, otherwise with path relative to input folder, like `*.csv`, `export/**.txt`."},
+      {"exclude", "", "Glob patterns (separated by `,`) of files to not convert."},
+      {"from", "", "Charset of input files, default is auto-detect for each file."},
+      {"to", "UTF-8", "Charset which files are converted to."},
+      {"mode", "sequential", "One of {sequential, parallel, pipeline}. Pipeline runs reader, converter and writer pools which are connected by bounded queues. Per-file logs of parallel and pipeline modes are in order of completion."},
+      {"threads", "" + Runtime.getRuntime().availableProcessors(), "Number of worker threads in parallel mode, or converter threads in pipeline mode."},
+      {"readers", "4", "Number of reader threads in pipeline mode."},
+      {"writers", "4", "Number of writer threads in pipeline mode."},
+      {"queueCapacity", "128", "Capacity of queue in front of each stage in pipeline mode."},
+      {"maxOpenFiles", "64", "Maximum number of files which are opened at same time."},
+      {"bufferSize", "64k", "Size of each buffer used to stream content while converting."},
+      {"mmapThreshold", "32m", "Files which have at least this size are read via memory-mapped regions (except on Windows)."},
+      {"inMemorySize", "1m", "Max size of file which is read into memory in pipeline mode, larger files are streamed."},
+      {"sampledDetection", "true", "Detect charset from a bounded sample (head and some windows) of each file, instead of whole file stream."},
+      {"detectHeadSize", "16k", "Size of head of the sample."},
+      {"detectWindowSize", "4k", "Size of each window of the sample."},
+      {"detectWindows", "4", "Number of windows of the sample."},
+      {"minConfidence", "60", "Confidence (0 ~ 100) of detection on head which is enough to skip windows."},
+      {"strict", "false", "Skip (keep original) files which contain malformed or unmappable input, instead of replacing such input."},
+      {"incremental", "true", "Record handled files into manifest, so files which were not changed since previous run are skipped without opening them."},
+      {"manifest", "", "Manifest file, default is `charset_converter.manifest` next to first input folder."},
+      {"fsync", "false", "Force converted content to disk before replacing original files."},
+      {"fsyncBatch", "256", "Number of files which are forced and replaced together."},
+      {"dryRun", "false", "Only detect charsets, then print a plan: files and bytes per charset pair, and estimated time."},
+      {"verbose", "false", "Print a line for each converted or skipped file."},
+      {"progressInterval", "10", "Seconds between progress lines, 0 to disable."},
+      {"summary", "", "File which JSON summary (counters and latencies) is written to at exit, default is print it."},
+   };
 
-   public CharsetConverter() {
-      String fs = File.separator;
-      String inDirPath = new File("").getAbsolutePath() + fs + "testdata";
-      File inDir = new File(inDirPath);
-      DkFiles
+   private final Charset fromCharset;
+   private final Charset toCharset;
+   private final boolean parallel;
+   private final int parallelism;
+   private final int maxOpenFiles;
+   private final int bufferSize;
+   private final boolean strictCoding;
+   private final long mmapThreshold;
+   private final boolean sampledDetection;
+   private final int detectHeadSize;
+   private final int detectWindowSize;
+   private final int detectWindowCount;
+   private final int detectMinConfidence;
+   private final boolean incremental;
+   private final boolean fsync;
+   private final int fsyncBatchSize;
+   private final boolean pipelined;
+   private final int readerThreads;
+   private final int converterThreads;
+   private final int writerThreads;
+   private final int stageQueueCapacity;
+   private final int pipelineMaxInMemorySize;
+   private final boolean dryRun;
+   private final boolean verbose;
+   private final int progressIntervalSeconds;
+
+   // Converted content is written to `file + TMP_SUFFIX` first, then it is moved to the file.
+   private static final String TMP_SUFFIX = ".charset-converting";
+
+   // In parallel mode, a task converts its files by itself when it holds at most this number of entries,
+   // otherwise it is split into 2 sub tasks.
+   private static final int FILES_PER_TASK = 16;
+
+   // In dry run, max total size of files of each charset pair which are transcoded to measure throughput
+   private static final long PLAN_SAMPLE_BUDGET = 16L * 1024 * 1024;
+
+   // Mapped regions are released only by GC, and Windows does not allow replacing a file which is still mapped,
+   // so files are always streamed there
+   private static final boolean MMAP_SUPPORTED = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+   private final File[] inDirs;
+   private final List<FileMatcher> includes;
+   private final List<FileMatcher> excludes;
+   private final ConversionManifest manifest;
+   private final AtomicFileReplacer replacer;
+   private final ConversionPlan plan;
+   private final ConversionMetrics metrics = new ConversionMetrics();
+   private final File summaryFile;
+   private final long startedAt = System.currentTimeMillis();
+   private final Semaphore openFileSlots;
+   private final ThreadLocal<CharsetTranscoder> transcoders;
+   private final ThreadLocal<CharsetSniffer> sniffers;
+
+   // Whether pure ascii content is kept as it is after encoded with toCharset
+   private final boolean toCharsetKeepsAscii;
+
+   /**
+    * @param args map of argument key -> value, see `ARGUMENTS` for available keys. Missing keys take default value.
+    * @throws IllegalArgumentException when a key is unknown or a value is invalid.
+    */
+   CharsetConverter(Map<String, String> args) {
+      Map<String, String> values = new LinkedHashMap<>();
+
+      for (String[] argument : ARGUMENTS) {
+         values.put(argument[0], argument[1]);
+      }
+      for (Map.Entry<String, String> entry : args.entrySet()) {
+         if (!values.containsKey(entry.getKey())) {
+            throw new IllegalArgumentException("Unknown argument: " + entry.getKey());
+         }
+         values.put(entry.getKey(), entry.getValue().trim());
+      }
+
+      String mode = values.get("mode");
+
+      if (!"sequential".equals(mode) && !"parallel".equals(mode) && !"pipeline".equals(mode)) {
+         throw new IllegalArgumentException("Invalid mode: " + mode);
+      }
+
+      fromCharset = values.get("from").isEmpty() ? null : Charset.forName(values.get("from"));
+      toCharset = Charset.forName(values.get("to"));
+      parallel = "parallel".equals(mode);
+      pipelined = "pipeline".equals(mode);
+      parallelism = parsePositiveInt(values, "threads");
+      converterThreads = parallelism;
+      readerThreads = parsePositiveInt(values, "readers");
+      writerThreads = parsePositiveInt(values, "writers");
+      stageQueueCapacity = parsePositiveInt(values, "queueCapacity");
+      maxOpenFiles = parsePositiveInt(values, "maxOpenFiles");
+      bufferSize = (int) parseSize(values, "bufferSize");
+      mmapThreshold = parseSize(values, "mmapThreshold");
+      pipelineMaxInMemorySize = (int) parseSize(values, "inMemorySize");
+      sampledDetection = Boolean.parseBoolean(values.get("sampledDetection"));
+      detectHeadSize = (int) parseSize(values, "detectHeadSize");
+      detectWindowSize = (int) parseSize(values, "detectWindowSize");
+      detectWindowCount = parsePositiveInt(values, "detectWindows");
+      detectMinConfidence = parsePositiveInt(values, "minConfidence");
+      strictCoding = Boolean.parseBoolean(values.get("strict"));
+      incremental = Boolean.parseBoolean(values.get("incremental"));
+      fsync = Boolean.parseBoolean(values.get("fsync"));
+      fsyncBatchSize = parsePositiveInt(values, "fsyncBatch");
+      dryRun = Boolean.parseBoolean(values.get("dryRun"));
+      verbose = Boolean.parseBoolean(values.get("verbose"));
+      progressIntervalSeconds = Integer.parseInt(values.get("progressInterval"));
+      summaryFile = values.get("summary").isEmpty() ? null : new File(values.get("summary"));
+
+      String[] inPaths = values.get("in").split(",");
+      inDirs = new File[inPaths.length];
+
+      for (int index = 0; index < inPaths.length; ++index) {
+         inDirs[index] = new File(inPaths[index].trim()).getAbsoluteFile();
+      }
+
+      includes = FileMatcher.parseAll(values.get("include"));
+      excludes = FileMatcher.parseAll(values.get("exclude"));
+
+      String manifestPath = values.get("manifest");
+      manifest = new ConversionManifest(manifestPath.isEmpty() ?
+         new File(inDirs[0].getParentFile(), "charset_converter.manifest") : new File(manifestPath));
+
+      replacer = new AtomicFileReplacer(fsync, fsyncBatchSize);
+      plan = dryRun ? new ConversionPlan(PLAN_SAMPLE_BUDGET) : null;
+      openFileSlots = new Semaphore(maxOpenFiles);
+      transcoders = ThreadLocal.withInitial(() -> new CharsetTranscoder(bufferSize));
+      sniffers = ThreadLocal.withInitial(() ->
+         new CharsetSniffer(detectHeadSize, detectWindowSize, detectWindowCount, detectMinConfidence));
+      toCharsetKeepsAscii = isAsciiCompatible(toCharset);
+   }
+
+   private static int parsePositiveInt(Map<String, String> values, String key) {
+      int value = Integer.parseInt(values.get(key));
+
+      if (value <= 0) {
+         throw new IllegalArgumentException("Require positive value for argument: " + key);
+      }
+
+      return value;
+   }
+
+   /**
+    * Parse size like `4096`, `64k`, `32m`, `1g`.
+    */
+   private static long parseSize(Map<String, String> values, String key) {
+      String value = values.get(key).toLowerCase();
+      long unit = 1;
+
+      if (value.endsWith("k")) {
+         unit = 1024;
+      }
+      else if (value.endsWith("m")) {
+         unit = 1024 * 1024;
+      }
+      else if (value.endsWith("g")) {
+         unit = 1024 * 1024 * 1024;
+      }
+
+      long size = Long.parseLong(unit == 1 ? value : value.substring(0, value.length() - 1)) * unit;
+
+      if (size <= 0) {
+         throw new IllegalArgumentException("Require positive size for argument: " + key);
+      }
+
+      return size;
+   }
+
+   public void start() throws Exception {
+      for (File inDir : inDirs) {
+         if (!inDir.exists() || !inDir.isDirectory()) {
+            println("[WARN] Aborted since not found input folder %s", inDir.getPath());
+            return;
+         }
+      }
+
+      if (incremental) {
+         manifest.load();
+      }
+      if (progressIntervalSeconds > 0) {
+         metrics.startProgressReporter(progressIntervalSeconds);
+      }
+
+      try {
+         if (dryRun) {
+            long startTime = System.currentTimeMillis();
+            convertAll();
+            plan.print(System.currentTimeMillis() - startTime, pipelined ? converterThreads : parallel ? parallelism : 1,
+               transcoders.get(), codingErrorAction());
+            return;
+         }
+
+         try {
+            convertAll();
+         }
+         finally {
+            replacer.flush();
+
+            if (incremental) {
+               manifest.save();
+            }
+         }
+      }
+      finally {
+         metrics.stopProgressReporter();
+         metrics.writeSummary(summaryFile);
+      }
+   }
+
+   private void convertAll() throws InterruptedException {
+      if (pipelined) {
+         new Pipeline().run();
+      }
+      else if (parallel) {
+         walkInParallel();
+      }
+      else {
+         for (File inDir : inDirs) {
+            loopOver(inDir);
+         }
+      }
+   }
+
+   private void walkInParallel() {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+      try {
+         pool.invoke(new ConvertTask(inDirs, 0, inDirs.length));
+      }
+      finally {
+         pool.shutdown();
+      }
    }
 
    /**
@@ -53,68 +326,466 @@ public class CharsetConverter {
       }
    }
 
+   /**
+    * Parallel version of `loopOver()`. Each task holds a range of entries of a folder,
+    * converts its files and forks new task for each sub folder.
+    */
+   private class ConvertTask extends RecursiveAction {
+      private final File[] files;
+      private final int from;
+      private final int to;
+
+      ConvertTask(File[] files, int from, int to) {
+         this.files = files;
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from > FILES_PER_TASK) {
+            int mid = (from + to) >>> 1;
+            invokeAll(new ConvertTask(files, from, mid), new ConvertTask(files, mid, to));
+            return;
+         }
+
+         List<ConvertTask> subTasks = new ArrayList<>();
+
+         for (int index = from; index < to; ++index) {
+            File file = files[index];
+
+            if (file.isFile()) {
+               openFileSlots.acquireUninterruptibly();
+
+               try {
+                  performConvertCharset(file);
+               }
+               finally {
+                  openFileSlots.release();
+               }
+            }
+            else if (file.isDirectory()) {
+               File[] fs = file.listFiles();
+
+               if (fs != null && fs.length > 0) {
+                  subTasks.add(new ConvertTask(fs, 0, fs.length));
+               }
+            }
+         }
+
+         invokeAll(subTasks);
+      }
+   }
+
    private void performConvertCharset(File file) {
-      Charset detectedCharset = detectCharset(file);
+      if (shouldHandle(file)) {
+         convertFile(file);
+      }
+   }
+
+   /**
+    * @return false if the file must not be converted, or was not changed since last run.
+    */
+   private boolean shouldHandle(File file) {
+      // Temporary output of other conversion, or leftover of interrupted run (its original file is intact)
+      if (file.getName().endsWith(TMP_SUFFIX)) {
+         if (!dryRun && file.lastModified() < startedAt - 2000) {
+            file.delete();
+         }
+         return false;
+      }
+
+      if (!isSelected(file)) {
+         return false;
+      }
+      if (incremental && isUnchangedSinceLastRun(file)) {
+         metrics.skipped(file.length());
+
+         if (dryRun) {
+            plan.addSkip(file);
+         }
+         return false;
+      }
+
+      return true;
+   }
+
+   /**
+    * @return true if the file matches with include patterns (if given) and does not match with exclude patterns.
+    */
+   private boolean isSelected(File file) {
+      if (includes.isEmpty() && excludes.isEmpty()) {
+         return true;
+      }
+
+      Path path = relativePathOf(file);
+
+      return (includes.isEmpty() || FileMatcher.matchesAny(includes, path)) && !FileMatcher.matchesAny(excludes, path);
+   }
+
+   private Path relativePathOf(File file) {
+      Path path = file.toPath();
+
+      for (File inDir : inDirs) {
+         if (path.startsWith(inDir.toPath())) {
+            return inDir.toPath().relativize(path);
+         }
+      }
+
+      return path;
+   }
+
+   private void convertFile(File file) {
+      Charset fromCharset = resolveFromCharset(file, detectCharset(file));
+
+      if (fromCharset == null) {
+         if (dryRun) {
+            plan.addSkip(file);
+         }
+      }
+      else if (dryRun) {
+         plan.addConversion(file, fromCharset, toCharset);
+      }
+      else {
+         startConvertCharset(file, fromCharset, toCharset);
+      }
+   }
 
+   /**
+    * @return charset which content of the file should be converted from, or null if the file should be skipped.
+    */
+   private Charset resolveFromCharset(File file, Charset detectedCharset) {
       if (detectedCharset == null) {
+         metrics.skipped(file.length());
          println("[WARN] Skipped convert since could not detect charset for file %s", file.getPath());
+         return null;
       }
-      else {
-         if (toCharset.equals(detectedCharset)) {
+
+      if (toCharset.equals(detectedCharset) || (toCharsetKeepsAscii && StandardCharsets.US_ASCII.equals(detectedCharset))) {
+         metrics.skipped(file.length());
+
+         if (verbose) {
             println("[Info] Skipped convert since same charset to convert for file %s", file.getName());
-         } else {
-            if (fromCharset != null && !detectedCharset.equals(fromCharset)) {
-               println("[WARN] Detected charset [%s] is not matched with your provided toCharset [%s]",
-                  detectedCharset.name(), fromCharset.name());
+         }
+
+         if (incremental && !dryRun) {
+            // Content is also valid in toCharset, so record it as toCharset to skip it at next run with same toCharset
+            manifest.record(file, 0, detectedCharset.name(), toCharset.name());
+         }
+         return null;
+      }
+
+      if (fromCharset != null && !detectedCharset.equals(fromCharset)) {
+         println("[WARN] Detected charset [%s] is not matched with your provided toCharset [%s]",
+            detectedCharset.name(), fromCharset.name());
+      }
+      Charset fromCharset = (this.fromCharset == null) ? detectedCharset : this.fromCharset;
+
+      if ("windows-1252".equalsIgnoreCase(fromCharset.name())) {
+         fromCharset = Charset.forName("SHIFT_JIS");
+      }
+
+      return fromCharset;
+   }
+
+   /**
+    * Pipelined version of `loopOver()`. Files are read by reader pool, detected and transcoded in memory
+    * by converter pool, then written by writer pool, so disk and cpu work at same time.
+    * Each pool takes tasks from a bounded queue and blocks its submitter while the queue is full,
+    * so a slow stage slows down previous stages instead of piling up content in memory.
+    */
+   private class Pipeline {
+      private final ThreadPoolExecutor readers = newStagePool(readerThreads);
+      private final ThreadPoolExecutor converters = newStagePool(converterThreads);
+      private final ThreadPoolExecutor writers = newStagePool(writerThreads);
+
+      void run() throws InterruptedException {
+         for (File inDir : inDirs) {
+            walk(inDir);
+         }
+
+         // Each stage only submits to next stage, so stop them in order
+         awaitStage(readers);
+         awaitStage(converters);
+         awaitStage(writers);
+      }
+
+      private void walk(File file) {
+         if (file.isFile()) {
+            if (shouldHandle(file)) {
+               readers.execute(() -> read(file));
+            }
+         }
+         else if (file.isDirectory()) {
+            File[] fs = file.listFiles();
+
+            if (fs != null) {
+               for (File f : fs) {
+                  walk(f);
+               }
+            }
+         }
+      }
+
+      private void read(File file) {
+         // Dry run only detects charset and adds the file to plan, so content is not passed to next stages
+         if (dryRun || file.length() > pipelineMaxInMemorySize) {
+            converters.execute(() -> convertLargeFile(file));
+            return;
+         }
+
+         try {
+            byte[] content;
+            openFileSlots.acquireUninterruptibly();
+
+            try {
+               content = Files.readAllBytes(file.toPath());
+            }
+            finally {
+               openFileSlots.release();
+            }
+
+            converters.execute(() -> convert(file, content));
+         }
+         catch (Exception e) {
+            metrics.failed(file.length());
+            e.printStackTrace();
+         }
+      }
+
+      private void convertLargeFile(File file) {
+         openFileSlots.acquireUninterruptibly();
+
+         try {
+            convertFile(file);
+         }
+         finally {
+            openFileSlots.release();
+         }
+      }
+
+      private void convert(File file, byte[] content) {
+         try {
+            Charset detectedCharset;
+
+            if (sampledDetection) {
+               long startTime = System.nanoTime();
+               detectedCharset = sniffers.get().sniff(content, content.length);
+               metrics.detected(content.length, System.nanoTime() - startTime);
             }
-            Charset fromCharset = (this.fromCharset == null) ? detectedCharset : this.fromCharset;
+            else {
+               detectedCharset = detectCharset(file);
+            }
+
+            Charset fromCharset = resolveFromCharset(file, detectedCharset);
+
+            if (fromCharset == null) {
+               return;
+            }
+
+            CharsetTranscoder transcoder = transcoders.get();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + (content.length >> 1));
+            long startTime = System.nanoTime();
+            transcoder.transcode(ByteBuffer.wrap(content), Channels.newChannel(out), fromCharset, toCharset, codingErrorAction());
+            metrics.transcoded(System.nanoTime() - startTime);
+
+            final long checksum = transcoder.checksum();
+            writers.execute(() -> write(file, content.length, out, fromCharset, checksum));
+         }
+         catch (CharacterCodingException e) {
+            metrics.failed(content.length);
+            println("[WARN] Skipped convert since malformed or unmappable input (%s) for file %s",
+               e.getMessage(), file.getPath());
+         }
+         catch (Exception e) {
+            metrics.failed(content.length);
+            e.printStackTrace();
+         }
+      }
+
+      private void write(File file, long fileSize, ByteArrayOutputStream content, Charset fromCharset, long checksum) {
+         File tmpFile = new File(file.getPath() + TMP_SUFFIX);
 
-            if ("windows-1252".equalsIgnoreCase(fromCharset.name())) {
-               fromCharset = Charset.forName("SHIFT_JIS");
+         try {
+            try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+               content.writeTo(fos);
             }
-            startConvertCharset(file, fromCharset, toCharset);
+
+            replaceWithConverted(file, fileSize, tmpFile, fromCharset, checksum);
+         }
+         catch (Exception e) {
+            tmpFile.delete();
+            metrics.failed(fileSize);
+            e.printStackTrace();
          }
       }
+
+      private void awaitStage(ThreadPoolExecutor stage) throws InterruptedException {
+         stage.shutdown();
+         stage.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      }
    }
 
+   private ThreadPoolExecutor newStagePool(int threadCount) {
+      return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+         new ArrayBlockingQueue<>(stageQueueCapacity),
+         (task, executor) -> {
+            // Back-pressure: wait until the stage has room for the task
+            try {
+               executor.getQueue().put(task);
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new RejectedExecutionException(e);
+            }
+         });
+   }
+
+   /**
+    * Stream content of the file through a transcoder into a temporary file, then atomically replace the file with it.
+    * So memory usage is constant regardless of file size, and the file is kept as it is when conversion failed
+    * or the program was killed in middle of conversion.
+    */
    private void startConvertCharset(File file, Charset fromCharset, Charset toCharset) {
+      File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+      CodingErrorAction action = codingErrorAction();
+      long fileSize = file.length();
+
       try {
-         FileInputStream fis = new FileInputStream(file);
-         byte[] content = fis.readAllBytes();
-         fis.close();
+         CharsetTranscoder transcoder = transcoders.get();
+         long startTime = System.nanoTime();
+
+         try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+              FileChannel out = FileChannel.open(tmpFile.toPath(),
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (MMAP_SUPPORTED && in.size() >= mmapThreshold) {
+               transcoder.transcodeMapped(in, out, fromCharset, toCharset, action);
+            }
+            else {
+               transcoder.transcode(in, out, fromCharset, toCharset, action);
+            }
+         }
 
-         String input = new String(content, fromCharset);
+         metrics.transcoded(System.nanoTime() - startTime);
+         replaceWithConverted(file, fileSize, tmpFile, fromCharset, transcoder.checksum());
+      }
+      catch (CharacterCodingException e) {
+         tmpFile.delete();
+         metrics.failed(fileSize);
+         println("[WARN] Skipped convert since malformed or unmappable input (%s) for file %s",
+            e.getMessage(), file.getPath());
+      }
+      catch (Exception e) {
+         tmpFile.delete();
+         metrics.failed(fileSize);
+         e.printStackTrace();
+      }
+   }
+
+   /**
+    * @param fileSize size of the file before conversion.
+    */
+   private void replaceWithConverted(File file, long fileSize, File tmpFile, Charset fromCharset, long checksum) throws Exception {
+      replacer.replace(tmpFile, file, () -> {
+         if (incremental) {
+            manifest.record(file, checksum, fromCharset.name(), toCharset.name());
+         }
+
+         metrics.converted(fileSize);
+
+         if (verbose) {
+            println("[Info] Converted charset %s -> %s for file %s",
+               fromCharset.name(), toCharset.name(), file.getPath());
+         }
+      });
+   }
 
-         FileOutputStream fos = new FileOutputStream(file);
-         fos.write(input.getBytes(toCharset));
-         fos.close();
+   private CodingErrorAction codingErrorAction() {
+      return strictCoding ? CodingErrorAction.REPORT : CodingErrorAction.REPLACE;
+   }
 
-         println("[Info] Converted charset %s -> %s for file %s",
-            fromCharset.name(), toCharset.name(), file.getPath());
+   private boolean isUnchangedSinceLastRun(File file) {
+      try {
+         return manifest.isUnchanged(file, toCharset.name());
       }
       catch (Exception e) {
          e.printStackTrace();
+         return false;
       }
    }
 
    private Charset detectCharset(File file) {
+      long startTime = System.nanoTime();
+
       try {
-         BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
-         CharsetDetector charsetDetector = new CharsetDetector();
-         charsetDetector.setText(bis);
-         String charsetName = charsetDetector.detect().getName();
+         if (sampledDetection) {
+            return sniffers.get().sniff(file);
+         }
+
+         try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
+            CharsetDetector charsetDetector = new CharsetDetector();
+            charsetDetector.setText(bis);
+            String charsetName = charsetDetector.detect().getName();
 
-         return charsetName == null ? null : Charset.forName(charsetName);
+            return charsetName == null ? null : Charset.forName(charsetName);
+         }
       }
       catch (Exception e) {
          e.printStackTrace();
          return null;
       }
+      finally {
+         metrics.detected(file.length(), System.nanoTime() - startTime);
+      }
+   }
+
+   private static boolean isAsciiCompatible(Charset charset) {
+      byte[] ascii = new byte[128];
+
+      for (int index = 0; index < ascii.length; ++index) {
+         ascii[index] = (byte) index;
+      }
+
+      return charset.canEncode() && Arrays.equals(ascii, new String(ascii, StandardCharsets.US_ASCII).getBytes(charset));
+   }
+
+   /**
+    * Print whole line at once, so lines from multiple worker threads are not mixed.
+    */
+   private static void println(String format, Object... args) {
+      System.out.println(String.format(format, args));
+   }
+
+   private static void printUsage() {
+      println("Run this program with syntax as: java CharsetConverter in:testdata,export from:SHIFT_JIS include:*.csv dryRun:true");
+      println("Please understand below available arguments (and default values) before run the program:");
+
+      for (String[] argument : ARGUMENTS) {
+         println("%-24s %s", argument[0] + ":" + argument[1], argument[2]);
+      }
    }
 
    public static void main(String[] args) {
+      CharsetConverter converter;
+
+      try {
+         for (String arg : args) {
+            if (arg.indexOf(':') <= 0) {
+               throw new IllegalArgumentException(arg);
+            }
+         }
+
+         converter = new CharsetConverter(ArgParser.parseArgs(args));
+      }
+      catch (Exception e) {
+         println("Invalid arguments: %s", e.getMessage());
+         printUsage();
+         System.exit(-1);
+         return;
+      }
+
       try {
-         new CharsetConverter().start();
+         converter.start();
       }
       catch (Exception e) {
          e.printStackTrace();
@@ -0,0 +1,166 @@
+import com.ibm.icu.text.CharsetDetector;
+import com.ibm.icu.text.CharsetMatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Detects charset of a file from a bounded sample instead of whole content:
+ * first `headSize` bytes, then (only when detection is not confident enough) some windows spread over the file.
+ *
+ * Note: this is not thread-safe since buffers and detector are reused between calls,
+ * each worker thread should own one instance.
+ */
+class CharsetSniffer {
+   private static final Charset UTF_32 = Charset.forName("UTF-32");
+
+   private final int headSize;
+   private final int windowSize;
+   private final int windowCount;
+   private final int minConfidence;
+
+   // Exact size arrays since ICU detector takes whole given array as input
+   private final byte[] head;
+   private final byte[] sample;
+   private final CharsetDetector detector = new CharsetDetector();
+
+   /**
+    * @param minConfidence confidence (0 ~ 100) of detection on head which is enough to skip sampling windows.
+    */
+   CharsetSniffer(int headSize, int windowSize, int windowCount, int minConfidence) {
+      this.headSize = headSize;
+      this.windowSize = windowSize;
+      this.windowCount = windowCount;
+      this.minConfidence = minConfidence;
+      this.head = new byte[headSize];
+      this.sample = new byte[headSize + windowSize * windowCount];
+   }
+
+   /**
+    * @return detected charset. Note that, `US-ASCII` is returned only when whole file is pure ascii.
+    *         Null is returned when could not detect.
+    */
+   Charset sniff(File file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         return sniff(channel.size(), (position, dst, offset, length) -> read(channel, position, dst, offset, length));
+      }
+   }
+
+   /**
+    * Same as `sniff(File)` but for content which was already read into memory.
+    */
+   Charset sniff(byte[] content, int contentLength) throws IOException {
+      return sniff(contentLength, (position, dst, offset, length) -> {
+         int count = (int) Math.max(0, Math.min(length, contentLength - position));
+         System.arraycopy(content, (int) position, dst, offset, count);
+         return count;
+      });
+   }
+
+   private interface Source {
+      int read(long position, byte[] dst, int offset, int length) throws IOException;
+   }
+
+   private Charset sniff(long size, Source source) throws IOException {
+      final int headLength = source.read(0, head, 0, headSize);
+
+      Charset bomCharset = detectBom(head, headLength);
+
+      if (bomCharset != null) {
+         return bomCharset;
+      }
+
+      // Whole file is inside head
+      if (headLength == size) {
+         if (isAscii(head, headLength)) {
+            return StandardCharsets.US_ASCII;
+         }
+         return toCharset(detect(headLength == headSize ? head : Arrays.copyOf(head, headLength)));
+      }
+
+      CharsetMatch match = detect(head);
+
+      if (match != null && match.getConfidence() >= minConfidence) {
+         return toCharset(match);
+      }
+
+      // Not confident enough, take windows which are spread evenly after head, then detect again
+      System.arraycopy(head, 0, sample, 0, headLength);
+
+      int sampleLength = headLength;
+      long remainSize = size - headLength;
+
+      for (int index = 1; index <= windowCount; ++index) {
+         long position = headLength + Math.max(0, remainSize * index / (windowCount + 1) - windowSize / 2);
+         sampleLength += source.read(position, sample, sampleLength, windowSize);
+      }
+
+      return toCharset(detect(sampleLength == sample.length ? sample : Arrays.copyOf(sample, sampleLength)));
+   }
+
+   private CharsetMatch detect(byte[] input) {
+      detector.setText(input);
+      return detector.detect();
+   }
+
+   private static Charset toCharset(CharsetMatch match) {
+      String charsetName = match == null ? null : match.getName();
+      return charsetName == null ? null : Charset.forName(charsetName);
+   }
+
+   /**
+    * Read at most `length` bytes from `position` of the channel into `dst` at `offset`.
+    *
+    * @return number of read bytes.
+    */
+   private static int read(FileChannel channel, long position, byte[] dst, int offset, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(dst, offset, length);
+
+      while (buffer.hasRemaining()) {
+         int readCount = channel.read(buffer, position);
+
+         if (readCount < 0) {
+            break;
+         }
+
+         position += readCount;
+      }
+
+      return buffer.position() - offset;
+   }
+
+   /**
+    * UTF-16 and UTF-32 with BOM are mapped to charsets which consume BOM while decoding.
+    * UTF-8 decoder does not consume BOM, so it is dropped by `CharsetTranscoder` instead.
+    */
+   private static Charset detectBom(byte[] bytes, int length) {
+      if (length >= 3 && (bytes[0] & 0xff) == 0xEF && (bytes[1] & 0xff) == 0xBB && (bytes[2] & 0xff) == 0xBF) {
+         return StandardCharsets.UTF_8;
+      }
+      if (length >= 4 && bytes[0] == 0 && bytes[1] == 0 && (bytes[2] & 0xff) == 0xFE && (bytes[3] & 0xff) == 0xFF) {
+         return UTF_32;
+      }
+      if (length >= 4 && (bytes[0] & 0xff) == 0xFF && (bytes[1] & 0xff) == 0xFE && bytes[2] == 0 && bytes[3] == 0) {
+         return UTF_32;
+      }
+      if (length >= 2 && (((bytes[0] & 0xff) == 0xFE && (bytes[1] & 0xff) == 0xFF) || ((bytes[0] & 0xff) == 0xFF && (bytes[1] & 0xff) == 0xFE))) {
+         return StandardCharsets.UTF_16;
+      }
+      return null;
+   }
+
+   private static boolean isAscii(byte[] bytes, int length) {
+      for (int index = 0; index < length; ++index) {
+         if (bytes[index] < 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Streaming transcoder which decodes bytes of a charset and encodes them to another charset
+ * chunk by chunk with fixed-size buffers, so memory usage does not depend on size of the file.
+ *
+ * Note: this is not thread-safe since buffers are reused between calls, each worker thread should own one instance.
+ */
+class CharsetTranscoder {
+   // Max size of each region of input file which is mapped into memory at once
+   private static final long MAPPED_WINDOW_SIZE = 256L * 1024 * 1024;
+
+   private final ByteBuffer inBuffer;
+   private final CharBuffer charBuffer;
+   private final ByteBuffer outBuffer;
+   private final CRC32 checksum = new CRC32();
+
+   private CharsetDecoder decoder;
+   private CharsetEncoder encoder;
+   private WritableByteChannel out;
+   private long writtenByteCount;
+   // Whether first decoded char is not checked yet for BOM (U+FEFF) which UTF-8 decoder does not consume
+   private boolean checkingBom;
+
+   CharsetTranscoder(int bufferSize) {
+      inBuffer = ByteBuffer.allocate(bufferSize);
+      charBuffer = CharBuffer.allocate(bufferSize);
+      outBuffer = ByteBuffer.allocate(bufferSize);
+   }
+
+   /**
+    * Read all bytes from `in`, convert them from `fromCharset` to `toCharset` and write result to `out`.
+    *
+    * @param action action for malformed or unmappable input. With `CodingErrorAction.REPORT`,
+    *               a `CharacterCodingException` is thrown at first bad input.
+    * @return number of bytes written to `out`.
+    */
+   long transcode(ReadableByteChannel in, WritableByteChannel out,
+                  Charset fromCharset, Charset toCharset, CodingErrorAction action) throws IOException {
+      begin(out, fromCharset, toCharset, action);
+
+      boolean endOfInput = false;
+
+      while (!endOfInput) {
+         endOfInput = in.read(inBuffer) < 0;
+
+         inBuffer.flip();
+         decodeAndEncode(inBuffer, endOfInput);
+         inBuffer.compact();
+      }
+
+      return end();
+   }
+
+   /**
+    * Same as `transcode(ReadableByteChannel...)` but for content which was already read into memory.
+    */
+   long transcode(ByteBuffer in, WritableByteChannel out,
+                  Charset fromCharset, Charset toCharset, CodingErrorAction action) throws IOException {
+      begin(out, fromCharset, toCharset, action);
+      decodeAndEncode(in, true);
+
+      return end();
+   }
+
+   /**
+    * Same as `transcode(ReadableByteChannel...)` but input file is mapped into memory and is decoded directly
+    * from mapped regions, so bytes are not copied into heap buffer. This is suitable for large files.
+    * Note: mapped regions stay until they are collected by GC, so on Windows the file can not be replaced after this.
+    */
+   long transcodeMapped(FileChannel in, WritableByteChannel out,
+                        Charset fromCharset, Charset toCharset, CodingErrorAction action) throws IOException {
+      begin(out, fromCharset, toCharset, action);
+
+      final long size = in.size();
+      long position = 0;
+
+      // Decoder requires at least one decode call with end of input before flush
+      if (size == 0) {
+         inBuffer.limit(0);
+         decodeAndEncode(inBuffer, true);
+      }
+
+      while (position < size) {
+         long length = Math.min(MAPPED_WINDOW_SIZE, size - position);
+         boolean endOfInput = position + length == size;
+         MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+         decodeAndEncode(window, endOfInput);
+
+         // Bytes of incomplete character at end of this window will be mapped again with next window
+         position += endOfInput ? length : window.position();
+      }
+
+      return end();
+   }
+
+   private void begin(WritableByteChannel out, Charset fromCharset, Charset toCharset, CodingErrorAction action) {
+      this.decoder = fromCharset.newDecoder().onMalformedInput(action).onUnmappableCharacter(action);
+      this.encoder = toCharset.newEncoder().onMalformedInput(action).onUnmappableCharacter(action);
+      this.out = out;
+      this.writtenByteCount = 0;
+      this.checkingBom = StandardCharsets.UTF_8.equals(fromCharset);
+      this.checksum.reset();
+
+      inBuffer.clear();
+      charBuffer.clear();
+      outBuffer.clear();
+   }
+
+   private long end() throws IOException {
+      // Flush chars which are kept inside decoder, then bytes which are kept inside encoder
+      CoderResult result;
+
+      do {
+         result = decoder.flush(charBuffer);
+         encodeChars(result.isUnderflow());
+      }
+      while (result.isOverflow());
+
+      do {
+         result = encoder.flush(outBuffer);
+         drainOutBuffer();
+      }
+      while (result.isOverflow());
+
+      out = null;
+      decoder = null;
+      encoder = null;
+
+      return writtenByteCount;
+   }
+
+   /**
+    * Decode as much as possible from given input, remaining bytes (an incomplete character at end of the chunk)
+    * are kept in the input to be decoded with next chunk.
+    */
+   private void decodeAndEncode(ByteBuffer input, boolean endOfInput) throws IOException {
+      while (true) {
+         CoderResult result = decoder.decode(input, charBuffer, endOfInput);
+
+         if (result.isError()) {
+            result.throwException();
+         }
+         if (checkingBom && charBuffer.position() > 0) {
+            dropBom();
+         }
+
+         // Chars are flushed at end(), so don't mark end of input for encoder at here
+         encodeChars(false);
+
+         if (result.isUnderflow()) {
+            break;
+         }
+      }
+   }
+
+   /**
+    * Drop BOM at head of decoded chars, otherwise it would be encoded into target charset
+    * (as `?` or other bytes which are not a BOM of target charset).
+    */
+   private void dropBom() {
+      checkingBom = false;
+
+      if (charBuffer.get(0) == '\uFEFF') {
+         charBuffer.flip();
+         charBuffer.get();
+         charBuffer.compact();
+      }
+   }
+
+   private void encodeChars(boolean endOfInput) throws IOException {
+      charBuffer.flip();
+
+      while (true) {
+         CoderResult result = encoder.encode(charBuffer, outBuffer, endOfInput);
+
+         if (result.isError()) {
+            result.throwException();
+         }
+         if (result.isUnderflow()) {
+            break;
+         }
+
+         drainOutBuffer();
+      }
+
+      charBuffer.compact();
+   }
+
+   /**
+    * @return crc32 of bytes which were written at last transcode.
+    */
+   long checksum() {
+      return checksum.getValue();
+   }
+
+   private void drainOutBuffer() throws IOException {
+      outBuffer.flip();
+      checksum.update(outBuffer.duplicate());
+
+      while (outBuffer.hasRemaining()) {
+         writtenByteCount += out.write(outBuffer);
+      }
+
+      outBuffer.clear();
+   }
+}
@@ -0,0 +1,153 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent state of files which were handled at previous runs. Each line of manifest file is like:
+ * <pre>{@code
+ *    size \t lastModified \t crc32 (hex, 0 if unknown) \t fromCharset \t charset \t absolute path
+ * }</pre>
+ * A file which has same size, last-modified time and charset with its entry can be skipped without opening it.
+ * This is thread-safe.
+ */
+class ConversionManifest {
+   static class Entry {
+      final long size;
+      final long lastModified;
+      final long hash;
+      // Charset which content was converted from (or was detected when it was not converted)
+      final String fromCharset;
+      // Charset of content after it was handled
+      final String charset;
+
+      Entry(long size, long lastModified, long hash, String fromCharset, String charset) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.hash = hash;
+         this.fromCharset = fromCharset;
+         this.charset = charset;
+      }
+   }
+
+   private final File manifestFile;
+   private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+   ConversionManifest(File manifestFile) {
+      this.manifestFile = manifestFile;
+   }
+
+   void load() throws IOException {
+      if (!manifestFile.exists()) {
+         return;
+      }
+
+      try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+         String line;
+
+         while ((line = reader.readLine()) != null) {
+            String[] arr = line.split("\t", 6);
+
+            // Line of old manifest (without fromCharset) is dropped, the file will be handled again
+            if (arr.length == 6) {
+               try {
+                  entries.put(arr[5], new Entry(Long.parseLong(arr[0]), Long.parseLong(arr[1]),
+                     Long.parseUnsignedLong(arr[2], 16), arr[3], arr[4]));
+               }
+               catch (NumberFormatException ignored) {
+                  // Broken line, the file will be handled again
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Write all entries to a temporary file, then replace the manifest file with it.
+    */
+   void save() throws IOException {
+      File tmpFile = new File(manifestFile.getPath() + ".tmp");
+
+      try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+         for (Map.Entry<String, Entry> item : new TreeMap<>(entries).entrySet()) {
+            Entry entry = item.getValue();
+
+            writer.write(String.valueOf(entry.size));
+            writer.write('\t');
+            writer.write(String.valueOf(entry.lastModified));
+            writer.write('\t');
+            writer.write(Long.toHexString(entry.hash));
+            writer.write('\t');
+            writer.write(entry.fromCharset);
+            writer.write('\t');
+            writer.write(entry.charset);
+            writer.write('\t');
+            writer.write(item.getKey());
+            writer.write('\n');
+         }
+      }
+
+      Files.move(tmpFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+   }
+
+   /**
+    * @param charset charset which the file should be in after handled at this run.
+    * @return true if the file was not changed since it was recorded, and it was handled into given charset.
+    *         When only last-modified time was changed, content hash (if known) is compared to decide it.
+    */
+   boolean isUnchanged(File file, String charset) throws IOException {
+      String path = file.getAbsolutePath();
+      Entry entry = entries.get(path);
+
+      if (entry == null || entry.size != file.length() || !entry.charset.equalsIgnoreCase(charset)) {
+         return false;
+      }
+
+      long lastModified = file.lastModified();
+
+      if (entry.lastModified == lastModified) {
+         return true;
+      }
+      if (entry.hash == 0 || entry.hash != checksum(file)) {
+         return false;
+      }
+
+      entries.put(path, new Entry(entry.size, lastModified, entry.hash, entry.fromCharset, entry.charset));
+
+      return true;
+   }
+
+   /**
+    * @param hash crc32 of current content of the file, or 0 if unknown.
+    * @param fromCharset charset which content of the file was converted from, or was detected when not converted.
+    * @param charset charset which current content of the file is valid in.
+    */
+   void record(File file, long hash, String fromCharset, String charset) {
+      entries.put(file.getAbsolutePath(), new Entry(file.length(), file.lastModified(), hash, fromCharset, charset));
+   }
+
+   private static long checksum(File file) throws IOException {
+      CRC32 crc32 = new CRC32();
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            crc32.update(buffer);
+            buffer.clear();
+         }
+      }
+
+      return crc32.getValue();
+   }
+}
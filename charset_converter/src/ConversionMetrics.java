@@ -0,0 +1,173 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a run. Recording is cheap (only `LongAdder` increments) and thread-safe,
+ * so it can be called per file from any worker thread.
+ */
+class ConversionMetrics {
+   /**
+    * Histogram with power-of-2 buckets: bucket `i` holds latencies in [2^i, 2^(i+1)) nanoseconds.
+    */
+   static class LatencyHistogram {
+      private final LongAdder[] buckets = new LongAdder[64];
+      private final LongAdder count = new LongAdder();
+      private final LongAdder totalNanos = new LongAdder();
+      private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+      LatencyHistogram() {
+         for (int index = 0; index < buckets.length; ++index) {
+            buckets[index] = new LongAdder();
+         }
+      }
+
+      void record(long nanos) {
+         nanos = Math.max(1, nanos);
+
+         buckets[63 - Long.numberOfLeadingZeros(nanos)].increment();
+         count.increment();
+         totalNanos.add(nanos);
+         maxNanos.accumulate(nanos);
+      }
+
+      /**
+       * @return upper bound (in nanoseconds) of the bucket which contains given percentile (0 ~ 1).
+       */
+      long percentile(double percentile) {
+         long target = (long) Math.ceil(count.sum() * percentile);
+         long cumulative = 0;
+
+         for (int index = 0; index < buckets.length; ++index) {
+            cumulative += buckets[index].sum();
+
+            if (cumulative >= target && cumulative > 0) {
+               return Math.min(maxNanos.get(), index == 62 ? Long.MAX_VALUE : (1L << (index + 1)) - 1);
+            }
+         }
+
+         return 0;
+      }
+
+      String toJson() {
+         long n = count.sum();
+
+         return String.format(Locale.ROOT,
+            "{\"count\": %d, \"meanMicros\": %.1f, \"p50Micros\": %.1f, \"p90Micros\": %.1f, \"p99Micros\": %.1f, \"maxMicros\": %.1f}",
+            n, n == 0 ? 0 : totalNanos.sum() / 1000.0 / n, percentile(0.5) / 1000.0, percentile(0.9) / 1000.0,
+            percentile(0.99) / 1000.0, maxNanos.get() / 1000.0);
+      }
+   }
+
+   final LongAdder detectedFiles = new LongAdder();
+   final LongAdder detectedBytes = new LongAdder();
+   final LongAdder convertedFiles = new LongAdder();
+   final LongAdder convertedBytes = new LongAdder();
+   final LongAdder skippedFiles = new LongAdder();
+   final LongAdder skippedBytes = new LongAdder();
+   final LongAdder failedFiles = new LongAdder();
+   final LongAdder failedBytes = new LongAdder();
+   final LatencyHistogram detectLatency = new LatencyHistogram();
+   final LatencyHistogram transcodeLatency = new LatencyHistogram();
+
+   private final long startTime = System.nanoTime();
+   private ScheduledExecutorService reporter;
+
+   void detected(long size, long nanos) {
+      detectedFiles.increment();
+      detectedBytes.add(size);
+      detectLatency.record(nanos);
+   }
+
+   void transcoded(long nanos) {
+      transcodeLatency.record(nanos);
+   }
+
+   void converted(long size) {
+      convertedFiles.increment();
+      convertedBytes.add(size);
+   }
+
+   void skipped(long size) {
+      skippedFiles.increment();
+      skippedBytes.add(size);
+   }
+
+   void failed(long size) {
+      failedFiles.increment();
+      failedBytes.add(size);
+   }
+
+   /**
+    * Print progress line every `intervalSeconds` on a daemon thread until `stopProgressReporter()` is called.
+    */
+   void startProgressReporter(int intervalSeconds) {
+      reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "progress-reporter");
+         thread.setDaemon(true);
+         return thread;
+      });
+      reporter.scheduleAtFixedRate(this::printProgress, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+   }
+
+   void stopProgressReporter() {
+      if (reporter != null) {
+         reporter.shutdownNow();
+         reporter = null;
+      }
+   }
+
+   void printProgress() {
+      double seconds = elapsedSeconds();
+      long handledFiles = convertedFiles.sum() + skippedFiles.sum() + failedFiles.sum();
+
+      System.out.println(String.format(Locale.ROOT,
+         "[Progress] %.0fs: detected %d, converted %d (%.1f MB), skipped %d, failed %d, %.0f files/s, %.1f MB/s",
+         seconds, detectedFiles.sum(), convertedFiles.sum(), toMegabytes(convertedBytes.sum()), skippedFiles.sum(),
+         failedFiles.sum(), seconds > 0 ? handledFiles / seconds : 0, seconds > 0 ? toMegabytes(convertedBytes.sum()) / seconds : 0));
+   }
+
+   /**
+    * @return machine-readable summary of the run.
+    */
+   String toJson() {
+      return String.format(Locale.ROOT, "{\n" +
+            "  \"elapsedSeconds\": %.3f,\n" +
+            "  \"files\": {\"detected\": %d, \"converted\": %d, \"skipped\": %d, \"failed\": %d},\n" +
+            "  \"bytes\": {\"detected\": %d, \"converted\": %d, \"skipped\": %d, \"failed\": %d},\n" +
+            "  \"detectLatency\": %s,\n" +
+            "  \"transcodeLatency\": %s\n" +
+            "}\n",
+         elapsedSeconds(),
+         detectedFiles.sum(), convertedFiles.sum(), skippedFiles.sum(), failedFiles.sum(),
+         detectedBytes.sum(), convertedBytes.sum(), skippedBytes.sum(), failedBytes.sum(),
+         detectLatency.toJson(), transcodeLatency.toJson());
+   }
+
+   /**
+    * Write summary to given file, or print it if file is null.
+    */
+   void writeSummary(File file) throws IOException {
+      if (file == null) {
+         System.out.print(toJson());
+      }
+      else {
+         Files.write(file.toPath(), toJson().getBytes(StandardCharsets.UTF_8));
+      }
+   }
+
+   private double elapsedSeconds() {
+      return (System.nanoTime() - startTime) / 1e9;
+   }
+
+   private static double toMegabytes(long byteCount) {
+      return byteCount / (1024.0 * 1024.0);
+   }
+}
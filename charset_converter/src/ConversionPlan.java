@@ -0,0 +1,145 @@
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result of a dry run: number of files and bytes which would be converted per charset pair,
+ * and estimated time of real run from transcoding throughput which is measured on some files of each pair.
+ * This is thread-safe.
+ */
+class ConversionPlan {
+   private static class Group {
+      final Charset fromCharset;
+      final Charset toCharset;
+      final LongAdder fileCount = new LongAdder();
+      final LongAdder byteCount = new LongAdder();
+      final List<File> samples = new ArrayList<>();
+      long sampleByteCount;
+
+      Group(Charset fromCharset, Charset toCharset) {
+         this.fromCharset = fromCharset;
+         this.toCharset = toCharset;
+      }
+   }
+
+   // Consumes all written bytes
+   private static final WritableByteChannel DISCARD = new WritableByteChannel() {
+      @Override
+      public int write(ByteBuffer src) {
+         int count = src.remaining();
+         src.position(src.limit());
+         return count;
+      }
+
+      @Override
+      public boolean isOpen() {
+         return true;
+      }
+
+      @Override
+      public void close() {
+      }
+   };
+
+   private final Map<String, Group> groups = new ConcurrentSkipListMap<>();
+   private final LongAdder skippedFileCount = new LongAdder();
+   private final LongAdder skippedByteCount = new LongAdder();
+   // Max total size of sample files of each pair
+   private final long sampleBudget;
+
+   ConversionPlan(long sampleBudget) {
+      this.sampleBudget = sampleBudget;
+   }
+
+   void addConversion(File file, Charset fromCharset, Charset toCharset) {
+      Group group = groups.computeIfAbsent(fromCharset.name() + " -> " + toCharset.name(),
+         k -> new Group(fromCharset, toCharset));
+      long size = file.length();
+
+      group.fileCount.increment();
+      group.byteCount.add(size);
+
+      synchronized (group) {
+         if (group.sampleByteCount < sampleBudget) {
+            group.samples.add(file);
+            group.sampleByteCount += size;
+         }
+      }
+   }
+
+   /**
+    * For files which would be skipped (same charset, not changed since last run, could not detect...).
+    */
+   void addSkip(File file) {
+      skippedFileCount.increment();
+      skippedByteCount.add(file.length());
+   }
+
+   /**
+    * Measure throughput of each pair, then print the plan.
+    *
+    * @param detectMillis time which was taken to walk and detect all files.
+    * @param threadCount number of threads which would transcode at same time in real run.
+    */
+   void print(long detectMillis, int threadCount, CharsetTranscoder transcoder, CodingErrorAction action) {
+      long totalFileCount = 0;
+      long totalByteCount = 0;
+      double totalSeconds = 0;
+
+      for (Map.Entry<String, Group> entry : groups.entrySet()) {
+         Group group = entry.getValue();
+         long byteCount = group.byteCount.sum();
+         double bytesPerSecond = measureThroughput(group, transcoder, action);
+         double seconds = bytesPerSecond > 0 ? byteCount / bytesPerSecond : 0;
+
+         totalFileCount += group.fileCount.sum();
+         totalByteCount += byteCount;
+         totalSeconds += seconds;
+
+         System.out.println(String.format("[Plan] %s: %d files, %.1f MB, measured %.1f MB/s, estimated %.1f s",
+            entry.getKey(), group.fileCount.sum(), toMegabytes(byteCount), toMegabytes((long) bytesPerSecond), seconds));
+      }
+
+      double estimatedSeconds = detectMillis / 1000.0 + totalSeconds / Math.max(1, threadCount);
+
+      System.out.println(String.format("[Plan] Convert %d files (%.1f MB), skip %d files (%.1f MB)",
+         totalFileCount, toMegabytes(totalByteCount), skippedFileCount.sum(), toMegabytes(skippedByteCount.sum())));
+      System.out.println(String.format("[Plan] Estimated %.1f s with %d threads (detection took %.1f s)",
+         estimatedSeconds, threadCount, detectMillis / 1000.0));
+   }
+
+   /**
+    * @return bytes per second of transcoding sample files of the group, or 0 if could not measure.
+    */
+   private static double measureThroughput(Group group, CharsetTranscoder transcoder, CodingErrorAction action) {
+      long byteCount = 0;
+      long startTime = System.nanoTime();
+
+      for (File file : group.samples) {
+         try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transcoder.transcode(in, DISCARD, group.fromCharset, group.toCharset, action);
+            byteCount += file.length();
+         }
+         catch (Exception ignored) {
+            // Bad input will be reported at real run
+         }
+      }
+
+      long elapsedNanos = System.nanoTime() - startTime;
+
+      return elapsedNanos > 0 ? byteCount * 1e9 / elapsedNanos : 0;
+   }
+
+   private static double toMegabytes(long byteCount) {
+      return byteCount / (1024.0 * 1024.0);
+   }
+}
@@ -0,0 +1,50 @@
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Glob pattern of files. Pattern which does not contain `/` is matched with file name,
+ * otherwise it is matched with path relative to input folder.
+ */
+class FileMatcher {
+   private final PathMatcher matcher;
+   private final boolean nameOnly;
+
+   private FileMatcher(String glob) {
+      this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+      this.nameOnly = glob.indexOf('/') < 0;
+   }
+
+   /**
+    * @param globs patterns which are separated by `,`.
+    */
+   static List<FileMatcher> parseAll(String globs) {
+      List<FileMatcher> result = new ArrayList<>();
+
+      for (String glob : globs.split(",")) {
+         glob = glob.trim();
+
+         if (glob.length() > 0) {
+            result.add(new FileMatcher(glob));
+         }
+      }
+
+      return result;
+   }
+
+   static boolean matchesAny(List<FileMatcher> matchers, Path relativePath) {
+      for (FileMatcher fileMatcher : matchers) {
+         if (fileMatcher.matches(relativePath)) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   boolean matches(Path relativePath) {
+      Path target = nameOnly ? relativePath.getFileName() : relativePath;
+      return target != null && matcher.matches(target);
+   }
+}
@@ -5,12 +5,18 @@ import tool.compet.javacore.util.DkStrings;
 import tool.compet.javacore.util.DkUtils;
 
 import javax.swing.*;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 // java -jar laravel_database_generator.jar modelNameSpace:app/Persistence/Database/Model daoNameSpace:app/Persistence/Database/Dao schemaNameSpace:app/Common/DbSchema
+// Optional: parallel:true threads:8 to generate models, Dao and schema classes on worker threads
+// Optional: cache:false to regenerate all models even if their migrations were not changed since last run
+// Optional: schemaIndex:bootstrap/cache/db_schema.php to write columns, keys and indexes of all tables as a PHP array
 public class GenerateDatabaseModels {
    private static final String ls = "\n";
    private static final String ls2 = ls + ls;
@@ -28,6 +34,19 @@ public class GenerateDatabaseModels {
    private String schemaDirPath;
    private String schemaNameSpace;
 
+   private boolean parallel;
+   private int threadCount;
+   private boolean useMigrationIndex;
+   // Null if schema index is not written
+   private File schemaIndexFile;
+
+   // Each worker thread owns a writer since its buffers are reused between files
+   private final ThreadLocal<ChangedContentWriter> writers = ThreadLocal.withInitial(ChangedContentWriter::new);
+   private final ThreadLocal<ModelFileProcessor> processors = ThreadLocal.withInitial(ModelFileProcessor::new);
+
+   // model class name -> fields (name -> comment) of models which were written at this run, so they are not read again
+   private final Map<String, Map<String, String>> model2fields = new ConcurrentHashMap<>();
+
    private GenerateDatabaseModels() {
       rootPath = DkConstant.ABS_PATH;
       migrationDirPath = DkFiles.makePath(rootPath, "database", "migrations");
@@ -37,6 +56,16 @@ public class GenerateDatabaseModels {
       modelNameSpace = pairs.getOrDefault("modelNameSpace", "App/Persistence/Database/Model");
       daoNameSpace = pairs.getOrDefault("daoNameSpace", "App/Persistence/Database/Dao");
       schemaNameSpace = pairs.getOrDefault("schemaNameSpace", "App/Common/DbSchema");
+      parallel = Boolean.parseBoolean(pairs.getOrDefault("parallel", "false"));
+      threadCount = Math.max(1, Integer.parseInt(pairs.getOrDefault("threads",
+         String.valueOf(Runtime.getRuntime().availableProcessors()))));
+      useMigrationIndex = Boolean.parseBoolean(pairs.getOrDefault("cache", "true"));
+
+      String schemaIndexPath = pairs.getOrDefault("schemaIndex", "");
+
+      if (schemaIndexPath.length() > 0) {
+         schemaIndexFile = new File(rootPath + fs + DkStrings.join(fs, schemaIndexPath.split("[/\\\\]+")));
+      }
 
       String fileSeparator = "[/\\\\]+";
       String defaultFileSeparator = "\\\\";
@@ -56,240 +85,460 @@ public class GenerateDatabaseModels {
       DkFiles.createNewDirRecursively(new File(daoDirPath));
       DkFiles.createNewDirRecursively(new File(schemaDirPath));
 
-      // Create new if not exist, format source code...
-      prepareModels();
+      File migrationDir = new File(migrationDirPath);
+
+      if (!migrationDir.exists() || !migrationDir.isDirectory()) {
+         DkUtils.complain(this, "Aborted since not exist migration folder [%s]", getRelativePath(migrationDir));
+      }
+
+      File[] migrationFiles = MigrationParser.listMigrationFiles(migrationDir);
+      MigrationIndex migrationIndex = null;
+      boolean upToDate = false;
+
+      // When no migration was changed since last run (and models were not deleted), models are up to date
+      if (useMigrationIndex) {
+         migrationIndex = new MigrationIndex(new File(rootPath + fs + "storage" + fs + "framework" + fs + "cache" + fs
+            + "generate_database_models.cache"), schemaIndexFile == null ? modelNameSpace : modelNameSpace + ";" + schemaIndexPath);
+         migrationIndex.load();
+
+         upToDate = migrationIndex.check(migrationFiles) && !hasMissingModel(migrationIndex.tableNames())
+            && (schemaIndexFile == null || schemaIndexFile.exists());
+      }
+
+      if (upToDate) {
+         DkConsoleLogs.justLog("Skipped models since no migration was changed since last run");
+      }
+      else {
+         // Replay migrations to know columns of each table, instead of running ide-helper:models
+         // which boots the app and connects to database
+         MigrationParser parser = new MigrationParser();
+         Map<String, MigrationParser.Table> tables = parser.parse(migrationFiles);
+
+         // Only tables which changed migrations touch, null means all tables
+         Set<String> changedTables = migrationIndex == null ? null : migrationIndex.changedTables(parser, tables);
 
-      // Run ide-helper:models to detect then write phpDocuments for all models which extends Model class
-      List<String> result = new ArrayList<>();
-      DkUtils.execCommand("php artisan ide-helper:models --write", result);
+         // Create new if not exist, write phpDocuments of properties, format source code...
+         prepareModels(tables, changedTables);
+
+         if (schemaIndexFile != null && writeSchemaIndex(tables)) {
+            DkConsoleLogs.justLog("Updated schema index [%s]", getRelativePath(schemaIndexFile));
+         }
 
-      for (String line : result) {
-         DkConsoleLogs.justLog(line);
+         if (migrationIndex != null) {
+            migrationIndex.update(migrationFiles, parser, tables);
+         }
       }
 
       // Collect properties from each model file
       // Create new Dao class for each model if not exist
       // Generate schema for each model if not exist
+      List<Callable<List<File>>> tasks = new ArrayList<>();
+
       for (File modelFile : DkFiles.collectFilesRecursively(modelDir)) {
-         String modelClassName = DkFiles.calcFileNameWithoutExtension(modelFile);
-         Map<String, String> field2comment = collectPropertiesFromModelFile(modelFile);
-         generateDaoClassIfNotExist(modelClassName);
-         generateSchemaIfNotExist(modelClassName, field2comment);
+         tasks.add(() -> {
+            String modelClassName = DkFiles.calcFileNameWithoutExtension(modelFile);
+            List<File> generatedFiles = new ArrayList<>(2);
+
+            if (generateDaoClassIfNotExist(modelClassName)) {
+               generatedFiles.add(new File(daoDirPath, modelClassName + "Dao.php"));
+            }
+            if (generateSchemaIfNotExist(modelClassName, modelFile)) {
+               generatedFiles.add(new File(schemaDirPath, modelClassName + "Schema.php"));
+            }
+
+            return generatedFiles;
+         });
       }
-   }
 
-   private void prepareModels() throws Exception {
-      File inDir = new File(migrationDirPath);
+      for (List<File> generatedFiles : runTasks(tasks)) {
+         for (File generatedFile : generatedFiles) {
+            DkConsoleLogs.justLog("Generated new file [%s]", getRelativePath(generatedFile));
+         }
+      }
 
-      if (!inDir.exists() || !inDir.isDirectory()) {
-         DkUtils.complain(this, "Aborted since not exist migration folder [%s]", getRelativePath(inDir));
+      // Save after all files were generated, so an aborted run is redone at next run
+      if (migrationIndex != null && !upToDate) {
+         migrationIndex.save();
       }
+   }
 
-      for (File migrationFile : Objects.requireNonNull(inDir.listFiles())) {
-         String fname = migrationFile.getName();
+   private boolean hasMissingModel(Set<String> tableNames) {
+      for (String tableName : tableNames) {
+         String modelClassName = makeModelClassName(tableName);
 
-         int startIndex = fname.lastIndexOf("create_");
-         int endIndex = fname.indexOf("_table.php");
+         if (modelClassName.length() > 0 && !new File(modelDirPath, modelClassName + ".php").exists()) {
+            return true;
+         }
+      }
+      return false;
+   }
 
-         if (startIndex < 0) {
-            continue;
+   /**
+    * Run the tasks on worker threads in parallel mode, otherwise one by one on current thread.
+    * Results are in order of tasks in both modes, so output (and log) does not depend on scheduling.
+    */
+   private <T> List<T> runTasks(List<Callable<T>> tasks) throws Exception {
+      List<T> results = new ArrayList<>(tasks.size());
+
+      if (!parallel || tasks.size() <= 1) {
+         for (Callable<T> task : tasks) {
+            results.add(task.call());
          }
-         if (endIndex < 0) {
-            endIndex = fname.indexOf('.');
+         return results;
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, tasks.size()));
+
+      try {
+         for (Future<T> future : executor.invokeAll(tasks)) {
+            results.add(future.get());
          }
+      }
+      finally {
+         executor.shutdown();
+      }
 
-         startIndex += "_create_".length();
+      return results;
+   }
 
-         if (startIndex >= endIndex) {
+   /**
+    * @param changedTables only models of these tables (and missing models) are rewritten, null means all tables.
+    */
+   private void prepareModels(Map<String, MigrationParser.Table> tables, Set<String> changedTables) throws Exception {
+      // Tables which resolve to same model class (case-insensitive since file system may be) would
+      // write same model file, so abort before touching any file
+      Map<String, MigrationParser.Table> modelKey2table = new HashMap<>();
+      List<Callable<String>> tasks = new ArrayList<>(tables.size());
+
+      for (MigrationParser.Table table : tables.values()) {
+         final String modelClassName = makeModelClassName(table.name);
+
+         if (modelClassName.length() == 0) {
             continue;
          }
 
-         String tableName = fname.substring(startIndex, endIndex);
-         String modelFileName = fname.substring(startIndex - 1, endIndex);
+         MigrationParser.Table conflictTable = modelKey2table.put(modelClassName.toLowerCase(Locale.ROOT), table);
 
-         // Make class name since now it is like `_transaction_detail`
-         StringBuilder sb = new StringBuilder(modelFileName);
+         if (conflictTable != null) {
+            DkUtils.complain(this, "Aborted since table [%s] (created in [%s]) and table [%s] (created in [%s]) resolve to same model [%s]",
+               conflictTable.name, conflictTable.migrationFileName, table.name, table.migrationFileName, modelClassName);
+         }
 
-         for (int i = 0, C = sb.length(); i < C; ++i) {
-            if (sb.charAt(i) == '_') {
-               sb.setCharAt(i + 1, Character.toUpperCase(sb.charAt(i + 1)));
-            }
+         if (changedTables == null || changedTables.contains(table.name)
+            || !new File(modelDirPath, modelClassName + ".php").exists()) {
+            tasks.add(() -> prepareModel(table, modelClassName));
          }
+      }
 
-         final String modelClassName = sb.toString().replaceAll("_", "");
-         modelFileName = modelClassName + ".php";
+      // Log messages of tasks in order of tasks, so parallel run logs same as sequential run
+      for (String message : runTasks(tasks)) {
+         if (message != null) {
+            DkConsoleLogs.justLog("%s", message);
+         }
+      }
+   }
 
-         // Generate model file
-         File outModelFile = new File(modelDirPath + fs + modelFileName);
+   /**
+    * @return message to log (the model was generated newly, or its document could not be written), otherwise null.
+    */
+   private String prepareModel(MigrationParser.Table table, String modelClassName) throws Exception {
+      ChangedContentWriter writer = writers.get();
+      String modelFileName = modelClassName + ".php";
 
-         // remove all comments for this model to cause ide-helper generate new document
-         if (outModelFile.exists()) {
-            BufferedReader reader = DkFiles.newUtf8Reader(outModelFile);
-            String readline;
-            ArrayList<String> lines = new ArrayList<>();
+      // Generate model file
+      File outModelFile = new File(modelDirPath + fs + modelFileName);
 
-            while ((readline = reader.readLine()) != null) {
-               String trimed = readline.trim();
+      List<String> document = new ArrayList<>();
+      appendModelDocument(document, modelClassName, table);
 
-               if (trimed.startsWith("/*") || trimed.startsWith("*")) {
-                  continue;
-               }
+      // remove all comments for this model, then write new document of properties before the class
+      if (outModelFile.exists()) {
+         ModelFileProcessor processor = processors.get();
+         processor.load(outModelFile);
 
-               lines.add(readline);
-            }
-            reader.close();
+         StringBuilder out = writer.begin();
+         Map<String, String> field2comment = processor.rewrite(document, out);
 
-            // Write model
-            BufferedWriter writer = DkFiles.newUtf8Writer(outModelFile);
-            format(lines);
+         writer.commit(outModelFile);
 
-            for (String line : lines) {
-               writer.write(line);
-               writer.write(ls);
-            }
+         if (field2comment == null) {
+            model2fields.put(modelClassName, new LinkedHashMap<>());
 
-            writer.close();
+            return String.format("[WARN] Not found class declaration in model [%s], so its properties were not documented",
+               getRelativePath(outModelFile));
          }
-         // generate new model class so ide-helper can add PhpDoc for us
-         else {
-            if (!outModelFile.createNewFile()) {
-               DkUtils.complain(this, "Could not create file [%s]", getRelativePath(outModelFile));
-            }
 
-            BufferedWriter bw = DkFiles.newUtf8Writer(outModelFile);
-            bw.write("<?php");
-            bw.write(ls2);
-            bw.write(DkStrings.format("namespace %s;", modelNameSpace));
-            bw.write(ls2);
-            bw.write("use Illuminate\\Database\\Eloquent\\Model;");
-            bw.write(ls2);
-            bw.write(DkStrings.format("class %s extends Model {", modelClassName));
-            bw.write(ls);
-            bw.write(DkStrings.format("   public $table = '%s';", tableName));
-            bw.write(ls);
-            bw.write("   public $timestamps = true;");
-            bw.write(ls);
-            bw.write("}");
-            bw.write(ls);
-            bw.close();
-
-            DkConsoleLogs.justLog("Generated new model [%s]", getRelativePath(outModelFile));
-         }
+         model2fields.put(modelClassName, field2comment);
       }
-   }
+      // generate new model class with PhpDoc of properties
+      else {
+         Map<String, String> field2comment = new LinkedHashMap<>();
+         StringBuilder out = writer.begin();
+         out.append("<?php");
+         out.append(ls2);
+         out.append("namespace ").append(modelNameSpace).append(";");
+         out.append(ls2);
+         out.append("use Illuminate\\Database\\Eloquent\\Model;");
+         out.append(ls2);
+
+         for (String line : document) {
+            out.append(line).append(ls);
+            ModelFileProcessor.collectProperty(line, field2comment);
+         }
 
-   private Map<String, String> collectPropertiesFromModelFile(File modelFile) throws Exception {
-      Map<String, String> field2comment = new LinkedHashMap<>();
+         out.append("class ").append(modelClassName).append(" extends Model {");
+         out.append(ls);
+         out.append("   public $table = '").append(table.name).append("';");
+         out.append(ls);
+         out.append("   public $timestamps = true;");
+         out.append(ls);
+         out.append("}");
+         out.append(ls);
 
-      // Collect fields and its comments from properties
-      List<String> lines = DkFiles.readFileAsUtf8Lines(modelFile);
-      String target = "@property ";
+         writer.commit(outModelFile);
+         model2fields.put(modelClassName, field2comment);
 
-      for (String line : lines) {
-         if (line.contains(target)) {
-            int startIndex = line.indexOf(target) + target.length();
+         return String.format("Generated new model [%s]", getRelativePath(outModelFile));
+      }
 
-            for (int index = startIndex, N = line.length(); index < N; ++index) {
-               char ch = line.charAt(index);
+      return null;
+   }
 
-               if (ch == '$') {
-                  startIndex = index + 1;
-                  int endIndex = line.indexOf(" ", startIndex);
+   /**
+    * Make class name of model from table name, for eg,. `transaction_detail` -> `TransactionDetail`.
+    */
+   private static String makeModelClassName(String tableName) {
+      StringBuilder sb = new StringBuilder(tableName.length());
+      boolean upperNext = true;
 
-                  if (endIndex < 0) {
-                     endIndex = N;
-                  }
+      for (int index = 0, N = tableName.length(); index < N; ++index) {
+         char ch = tableName.charAt(index);
 
-                  if (endIndex > startIndex) {
-                     String fieldName = line.substring(startIndex, endIndex).trim();
-                     String fieldComment = line.substring(endIndex).trim();
+         if (ch == '_') {
+            upperNext = true;
+         }
+         else {
+            sb.append(upperNext ? Character.toUpperCase(ch) : ch);
+            upperNext = false;
+         }
+      }
 
-                     if (fieldName.length() > 0) {
-                        field2comment.put(fieldName, fieldComment);
-                     }
-                  }
+      return sb.toString();
+   }
 
-                  break;
-               }
-            }
+   /**
+    * Append PhpDoc of model like ide-helper does, each column is a property like `@property string|null $name comment`.
+    */
+   private void appendModelDocument(List<String> lines, String modelClassName, MigrationParser.Table table) {
+      lines.add("/**");
+      lines.add(" * " + modelNameSpace + "\\" + modelClassName);
+      lines.add(" *");
+
+      for (MigrationParser.Column column : table.columns) {
+         StringBuilder line = new StringBuilder(64);
+         line.append(" * @property ").append(column.docType()).append(" $").append(column.name);
+
+         if (column.comment.length() > 0) {
+            // Comment must be in one line and not close the document
+            line.append(' ').append(column.comment.replace("*/", "* /").replace('\r', ' ').replace('\n', ' '));
          }
+
+         lines.add(line.toString());
       }
 
-      return field2comment;
+      lines.add(" */");
    }
 
-   private void generateDaoClassIfNotExist(String modelClassName) throws Exception {
+   /**
+    * @return true if the Dao class was generated.
+    */
+   private boolean generateDaoClassIfNotExist(String modelClassName) throws Exception {
       String daoClassName = modelClassName + "Dao";
       File daoFile = new File(daoDirPath, daoClassName + ".php");
 
       if (daoFile.exists()) {
-         return;
+         return false;
       }
 
-      DkFiles.createNewFileRecursively(daoFile);
-
-      BufferedWriter bw = DkFiles.newUtf8Writer(daoFile);
-      bw.write("<?php");
-      bw.write(ls2);
-      bw.write(DkStrings.format("namespace %s;", daoNameSpace));
-      bw.write(ls2);
-      bw.write(DkStrings.format("use App\\Persistence\\Database\\Model\\%s;", modelClassName));
-      bw.write(ls2);
-      bw.write(DkStrings.format("class %s extends %s {", daoClassName, modelClassName));
-      bw.write(ls);
-      bw.write("}");
-      bw.write(ls);
-      bw.close();
-
-      DkConsoleLogs.justLog("Generated new file [%s]", getRelativePath(daoFile));
+      ChangedContentWriter writer = writers.get();
+
+      StringBuilder sb = writer.begin();
+      sb.append("<?php");
+      sb.append(ls2);
+      sb.append("namespace ").append(daoNameSpace).append(";");
+      sb.append(ls2);
+      sb.append("use App\\Persistence\\Database\\Model\\").append(modelClassName).append(";");
+      sb.append(ls2);
+      sb.append("class ").append(daoClassName).append(" extends ").append(modelClassName).append(" {");
+      sb.append(ls);
+      sb.append("}");
+      sb.append(ls);
+
+      writer.commit(daoFile);
+
+      return true;
    }
 
-   private void generateSchemaIfNotExist(String modelClassName, Map<String, String> field2comment) throws Exception {
+   /**
+    * @return true if the schema class was generated.
+    */
+   private boolean generateSchemaIfNotExist(String modelClassName, File modelFile) throws Exception {
       String schemaClassName = modelClassName + "Schema";
       File schemaFile = new File(schemaDirPath, schemaClassName + ".php");
 
       if (schemaFile.exists()) {
-         return;
+         return false;
       }
 
-      DkFiles.createNewFileRecursively(schemaFile);
+      Map<String, String> field2comment = model2fields.get(modelClassName);
+
+      if (field2comment == null) {
+         ModelFileProcessor processor = processors.get();
+         processor.load(modelFile);
+         field2comment = processor.collectProperties();
+      }
 
-      BufferedWriter bw = DkFiles.newUtf8Writer(schemaFile);
-      bw.write("<?php");
-      bw.write(ls2);
-      bw.write(DkStrings.format("namespace %s;", schemaNameSpace));
-      bw.write(ls2);
-      bw.write(DkStrings.format("class %s {", schemaClassName));
-      bw.write(ls);
+      ChangedContentWriter writer = writers.get();
+
+      StringBuilder sb = writer.begin();
+      sb.append("<?php");
+      sb.append(ls2);
+      sb.append("namespace ").append(schemaNameSpace).append(";");
+      sb.append(ls2);
+      sb.append("class ").append(schemaClassName).append(" {");
+      sb.append(ls);
 
       for (String fieldName : field2comment.keySet()) {
-         bw.write(DkStrings.format("   /** %s */", field2comment.get(fieldName)));
-         bw.write(ls);
-         bw.write(DkStrings.format("   public $%s = '%s';", fieldName, fieldName));
-         bw.write(ls);
+         sb.append("   /** ").append(field2comment.get(fieldName)).append(" */");
+         sb.append(ls);
+         sb.append("   public $").append(fieldName).append(" = '").append(fieldName).append("';");
+         sb.append(ls);
       }
 
-      bw.write("}");
-      bw.write(ls);
-      bw.close();
+      sb.append("}");
+      sb.append(ls);
+
+      writer.commit(schemaFile);
 
-      DkConsoleLogs.justLog("Generated new file [%s]", getRelativePath(schemaFile));
+      return true;
    }
 
-   private void format(List<String> lines) {
-      // remove double linefeed
-      boolean isPrevEmpty = true;
+   /**
+    * Write columns, primary key, indexes and foreign keys of all tables as a PHP file which returns a constant array,
+    * so opcache keeps it as immutable data and runtime does not need to query `information_schema`.
+    *
+    * @return true if the file was written.
+    */
+   private boolean writeSchemaIndex(Map<String, MigrationParser.Table> tables) throws Exception {
+      StringBuilder sb = writers.get().begin();
+      sb.append("<?php");
+      sb.append(ls2);
+      sb.append("// Generated from database/migrations by laravel_database_generator, do not edit.").append(ls);
+      sb.append("// table => [columns => [name => [type, nullable, unsigned?, auto_increment?, comment?]], primary, indexes, foreign_keys]");
+      sb.append(ls2);
+      sb.append("return [");
+      sb.append(ls);
+
+      for (MigrationParser.Table table : new TreeMap<>(tables).values()) {
+         sb.append("   ");
+         appendPhpString(sb, table.name).append(" => [").append(ls);
+
+         sb.append("      'columns' => [").append(ls);
+
+         for (MigrationParser.Column column : table.columns) {
+            sb.append("         ");
+            appendPhpString(sb, column.name).append(" => ['type' => ");
+            appendPhpString(sb, column.type).append(", 'nullable' => ").append(column.nullable);
+
+            if (column.unsigned) {
+               sb.append(", 'unsigned' => true");
+            }
+            if (column.autoIncrement) {
+               sb.append(", 'auto_increment' => true");
+            }
+            if (column.comment.length() > 0) {
+               appendPhpString(sb.append(", 'comment' => "), column.comment);
+            }
+
+            sb.append("],").append(ls);
+         }
+
+         sb.append("      ],").append(ls);
+
+         appendPhpStrings(sb.append("      'primary' => "), table.primaryKey).append(',').append(ls);
 
-      for (int index = lines.size() - 1; index >= 0; --index) {
-         String line = lines.get(index);
-         boolean isEmpty = line.trim().length() == 0;
+         sb.append("      'indexes' => [").append(ls);
 
-         if (isEmpty && isPrevEmpty) {
-            lines.remove(index);
+         for (MigrationParser.Index index : table.indexes) {
+            sb.append("         ");
+            appendPhpString(sb, index.name).append(" => ['type' => ");
+            appendPhpString(sb, index.type).append(", 'columns' => ");
+            appendPhpStrings(sb, index.columns).append("],").append(ls);
          }
 
-         isPrevEmpty = isEmpty;
+         sb.append("      ],").append(ls);
+
+         sb.append("      'foreign_keys' => [").append(ls);
+
+         for (MigrationParser.ForeignKey foreignKey : table.foreignKeys) {
+            sb.append("         ");
+            appendPhpString(sb, foreignKey.name).append(" => ['columns' => ");
+            appendPhpStrings(sb, foreignKey.columns).append(", 'on' => ");
+            appendPhpString(sb, foreignKey.on).append(", 'references' => ");
+            appendPhpStrings(sb, foreignKey.references).append(", 'on_delete' => ");
+            appendPhpString(sb, foreignKey.onDelete).append(", 'on_update' => ");
+            appendPhpString(sb, foreignKey.onUpdate).append("],").append(ls);
+         }
+
+         sb.append("      ],").append(ls);
+
+         sb.append("   ],").append(ls);
       }
+
+      sb.append("];");
+      sb.append(ls);
+
+      return writers.get().commit(schemaIndexFile);
+   }
+
+   /**
+    * Append value as single-quoted PHP string, or `null`.
+    */
+   private static StringBuilder appendPhpString(StringBuilder sb, String value) {
+      if (value == null) {
+         return sb.append("null");
+      }
+
+      sb.append('\'');
+
+      for (int index = 0, N = value.length(); index < N; ++index) {
+         char ch = value.charAt(index);
+
+         if (ch == '\'' || ch == '\\') {
+            sb.append('\\');
+         }
+
+         sb.append(ch);
+      }
+
+      return sb.append('\'');
+   }
+
+   private static StringBuilder appendPhpStrings(StringBuilder sb, List<String> values) {
+      if (values == null) {
+         return sb.append("null");
+      }
+
+      sb.append('[');
+
+      for (int index = 0, N = values.size(); index < N; ++index) {
+         if (index > 0) {
+            sb.append(", ");
+         }
+         appendPhpString(sb, values.get(index));
+      }
+
+      return sb.append(']');
    }
 
    protected String getRelativePath(File f) {
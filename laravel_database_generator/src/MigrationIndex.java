@@ -0,0 +1,313 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent index of migrations at previous run, so a run where no migration was changed does not replay migrations
+ * nor rewrite models, and other runs only rewrite models of tables which changed migrations touch.
+ *
+ * Each migration is fingerprinted by its size, last-modified time and crc32 of its content (crc32 is compared only
+ * when last-modified time was changed), and maps to names of tables which it creates, alters, renames or drops.
+ * Each table maps to fingerprint of its columns after the last migration, so an edit which does not change columns
+ * (like formatting) does not rewrite the model.
+ *
+ * Binary format of index file:
+ * <pre>{@code
+ *    int magic, int version, string options,
+ *    int migrationCount, migrationCount * {string fileName, long size, long lastModified, long crc32, int tableCount, tableCount * string},
+ *    int tableCount, tableCount * {string tableName, long fingerprint}
+ * }</pre>
+ * Where each string is written as int byteCount followed by its UTF-8 bytes.
+ * Note: this is not thread-safe.
+ */
+class MigrationIndex {
+   private static final int MAGIC = 0x47444d49;
+   // Bump this whenever columns which are replayed from same migrations change, so models are regenerated
+   private static final int VERSION = 2;
+
+   private static class Entry {
+      final long size;
+      final long lastModified;
+      final long hash;
+      final String[] tableNames;
+
+      Entry(long size, long lastModified, long hash, String[] tableNames) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.hash = hash;
+         this.tableNames = tableNames;
+      }
+   }
+
+   private final File indexFile;
+   // Arguments which affect generated files, index of other arguments is invalid
+   private final String options;
+   private boolean loaded;
+
+   // migration file name -> entry
+   private Map<String, Entry> entries = new HashMap<>();
+   // table name -> fingerprint of its columns
+   private Map<String, Long> table2fingerprint = new HashMap<>();
+
+   // Migrations which were changed, added or deleted since last run, and crc32 of current content of checked files
+   private final Set<String> changedMigrations = new HashSet<>();
+   private final Map<String, Long> migration2hash = new HashMap<>();
+
+   MigrationIndex(File indexFile, String options) {
+      this.indexFile = indexFile;
+      this.options = options;
+   }
+
+   /**
+    * Load index from index file. Missing, broken, old-version or other-options index file is ignored.
+    */
+   void load() {
+      if (!indexFile.exists()) {
+         return;
+      }
+
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+         if (in.readInt() != MAGIC || in.readInt() != VERSION || !options.equals(readString(in))) {
+            return;
+         }
+
+         for (int count = in.readInt(); count > 0; --count) {
+            String fileName = readString(in);
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long hash = in.readLong();
+            String[] tableNames = new String[in.readInt()];
+
+            for (int index = 0; index < tableNames.length; ++index) {
+               tableNames[index] = readString(in);
+            }
+
+            entries.put(fileName, new Entry(size, lastModified, hash, tableNames));
+         }
+
+         for (int count = in.readInt(); count > 0; --count) {
+            String tableName = readString(in);
+            table2fingerprint.put(tableName, in.readLong());
+         }
+
+         loaded = true;
+      }
+      catch (IOException e) {
+         // All models will be regenerated
+         entries.clear();
+         table2fingerprint.clear();
+      }
+   }
+
+   /**
+    * Compare the migrations with the index.
+    *
+    * @return true if index was loaded, and no migration was changed, added or deleted since last run.
+    */
+   boolean check(File[] migrationFiles) throws IOException {
+      changedMigrations.clear();
+      migration2hash.clear();
+
+      Set<String> deletedMigrations = new HashSet<>(entries.keySet());
+
+      for (File migrationFile : migrationFiles) {
+         String fileName = migrationFile.getName();
+         Entry entry = entries.get(fileName);
+
+         deletedMigrations.remove(fileName);
+
+         if (entry == null || entry.size != migrationFile.length()) {
+            changedMigrations.add(fileName);
+         }
+         else if (entry.lastModified != migrationFile.lastModified()) {
+            long hash = checksum(migrationFile);
+            migration2hash.put(fileName, hash);
+
+            if (hash != entry.hash) {
+               changedMigrations.add(fileName);
+            }
+         }
+      }
+
+      changedMigrations.addAll(deletedMigrations);
+
+      return loaded && changedMigrations.isEmpty();
+   }
+
+   /**
+    * @return names of tables which changed migrations touch (by their content at last run and now), and whose columns
+    *         differ from last run. Or null if index was not loaded, that is, all tables must be regenerated.
+    */
+   Set<String> changedTables(MigrationParser parser, Map<String, MigrationParser.Table> tables) {
+      if (!loaded) {
+         return null;
+      }
+
+      Set<String> tableNames = new HashSet<>();
+
+      for (String fileName : changedMigrations) {
+         Entry entry = entries.get(fileName);
+
+         if (entry != null) {
+            tableNames.addAll(List.of(entry.tableNames));
+         }
+
+         tableNames.addAll(parser.tablesTouchedBy(fileName));
+      }
+
+      tableNames.removeIf(tableName -> {
+         MigrationParser.Table table = tables.get(tableName);
+         Long fingerprint = table2fingerprint.get(tableName);
+
+         // Dropped table has no model to regenerate
+         return table == null || (fingerprint != null && fingerprint == fingerprintOf(table));
+      });
+
+      return tableNames;
+   }
+
+   /**
+    * @return names of tables at last run.
+    */
+   Set<String> tableNames() {
+      return table2fingerprint.keySet();
+   }
+
+   /**
+    * Replace the index with the migrations and tables which were replayed at this run.
+    */
+   void update(File[] migrationFiles, MigrationParser parser, Map<String, MigrationParser.Table> tables) throws IOException {
+      Map<String, Entry> newEntries = new HashMap<>();
+      Map<String, Long> newTable2fingerprint = new HashMap<>();
+
+      for (File migrationFile : migrationFiles) {
+         String fileName = migrationFile.getName();
+         Entry entry = entries.get(fileName);
+         Long hash = migration2hash.get(fileName);
+
+         if (hash == null) {
+            hash = entry != null && !changedMigrations.contains(fileName) ? entry.hash : checksum(migrationFile);
+         }
+
+         newEntries.put(fileName, new Entry(migrationFile.length(), migrationFile.lastModified(), hash,
+            parser.tablesTouchedBy(fileName).toArray(new String[0])));
+      }
+
+      for (MigrationParser.Table table : tables.values()) {
+         newTable2fingerprint.put(table.name, fingerprintOf(table));
+      }
+
+      entries = newEntries;
+      table2fingerprint = newTable2fingerprint;
+      changedMigrations.clear();
+      migration2hash.clear();
+      loaded = true;
+   }
+
+   /**
+    * Write the index to a temporary file, then replace the index file with it.
+    */
+   void save() throws IOException {
+      File parentDir = indexFile.getAbsoluteFile().getParentFile();
+
+      if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+         throw new IOException("Could not create folder " + parentDir.getPath());
+      }
+
+      File tmpFile = new File(indexFile.getPath() + ".tmp");
+
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         writeString(out, options);
+         out.writeInt(entries.size());
+
+         for (Map.Entry<String, Entry> item : new TreeMap<>(entries).entrySet()) {
+            Entry entry = item.getValue();
+
+            writeString(out, item.getKey());
+            out.writeLong(entry.size);
+            out.writeLong(entry.lastModified);
+            out.writeLong(entry.hash);
+            out.writeInt(entry.tableNames.length);
+
+            for (String tableName : entry.tableNames) {
+               writeString(out, tableName);
+            }
+         }
+
+         out.writeInt(table2fingerprint.size());
+
+         for (Map.Entry<String, Long> item : new TreeMap<>(table2fingerprint).entrySet()) {
+            writeString(out, item.getKey());
+            out.writeLong(item.getValue());
+         }
+      }
+
+      Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+   }
+
+   /**
+    * @return crc32 of name, type, nullability and comment of the columns in order.
+    */
+   static long fingerprintOf(MigrationParser.Table table) {
+      CRC32 crc32 = new CRC32();
+
+      for (MigrationParser.Column column : table.columns) {
+         String line = column.name + '\0' + column.phpType + '\0' + column.nullable + '\0' + column.comment + '\n';
+         crc32.update(line.getBytes(StandardCharsets.UTF_8));
+      }
+
+      return crc32.getValue();
+   }
+
+   private static long checksum(File file) throws IOException {
+      CRC32 crc32 = new CRC32();
+      byte[] buffer = new byte[16 * 1024];
+
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+         int readCount;
+
+         while ((readCount = in.read(buffer)) > 0) {
+            crc32.update(buffer, 0, readCount);
+         }
+      }
+
+      return crc32.getValue();
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private static String readString(DataInputStream in) throws IOException {
+      int byteCount = in.readInt();
+
+      if (byteCount < 0) {
+         throw new EOFException("Broken string length " + byteCount);
+      }
+
+      byte[] bytes = new byte[byteCount];
+      in.readFully(bytes);
+
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+}
@@ -0,0 +1,1337 @@
+import tool.compet.javacore.log.DkConsoleLogs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds columns of tables by replaying blueprints of migrations (`database/migrations/*.php`) in order of
+ * file name (which starts with timestamp), so no need to boot the app or connect to database. Handles:
+ * <pre>{@code
+ *    Schema::create('users', function (Blueprint $table) {
+ *       $table->id();
+ *       $table->string('name', 100)->nullable()->comment('Full name');
+ *       $table->timestamps();
+ *    });
+ *    Schema::table('users', function (Blueprint $table) {
+ *       $table->renameColumn('name', 'full_name');
+ *       $table->dropColumn(['age', 'sex']);
+ *       $table->integer('point')->default(0)->after('id');
+ *       $table->text('note')->nullable()->change();
+ *    });
+ *    Schema::rename('users', 'members');
+ *    Schema::dropIfExists('members');
+ * }</pre>
+ * Only body of `up()` is replayed. Statements which can not be evaluated statically
+ * (like table name from a variable) are skipped with a warning.
+ *
+ * Besides columns, primary key, indexes (`->unique()`, `$table->index([...])`...) and foreign keys
+ * (`->constrained()`, `$table->foreign(...)->references(...)->on(...)`) are tracked with names which Laravel gives them
+ * by default, so later `dropUnique(['email'])` or `dropForeign('posts_user_id_foreign')` can find them.
+ *
+ * Note: this is not thread-safe since token buffers are reused between files.
+ */
+class MigrationParser {
+   private static final String CARBON = "\\Illuminate\\Support\\Carbon";
+
+   private static final int IDENT = 1;
+   private static final int STRING = 2;
+   private static final int DOUBLE_COLON = 3;
+   private static final int ARROW = 4;
+   private static final int DOUBLE_ARROW = 5;
+   private static final int SYMBOL = 6;
+
+   static class Column {
+      final String name;
+      // Type of column in Blueprint, like `bigInteger`, `string`, `timestamp`
+      final String type;
+      // Type in PhpDoc (type of value which Eloquent returns), like `int`, `string`, `\Illuminate\Support\Carbon`
+      final String phpType;
+      boolean nullable;
+      boolean unsigned;
+      boolean autoIncrement;
+      String comment = "";
+
+      Column(String name, String type, String phpType, boolean nullable) {
+         this.name = name;
+         this.type = type;
+         this.phpType = phpType;
+         this.nullable = nullable;
+      }
+
+      Column renamedTo(String newName) {
+         Column column = new Column(newName, type, phpType, nullable);
+         column.unsigned = unsigned;
+         column.autoIncrement = autoIncrement;
+         column.comment = comment;
+
+         return column;
+      }
+
+      /**
+       * @return type in PhpDoc of model property, like `string|null`.
+       */
+      String docType() {
+         return nullable ? phpType + "|null" : phpType;
+      }
+   }
+
+   static class Index {
+      String name;
+      // One of `unique`, `index`, `fulltext`, `spatialindex`
+      final String type;
+      final List<String> columns;
+
+      Index(String name, String type, List<String> columns) {
+         this.name = name;
+         this.type = type;
+         this.columns = columns;
+      }
+   }
+
+   static class ForeignKey {
+      String name;
+      final List<String> columns;
+      // Referenced table and its columns, null if not specified
+      String on;
+      List<String> references;
+      // Like `cascade`, `set null`, null if not specified
+      String onDelete;
+      String onUpdate;
+
+      ForeignKey(String name, List<String> columns) {
+         this.name = name;
+         this.columns = columns;
+      }
+   }
+
+   static class Table {
+      String name;
+      // File name of migration which created this table
+      final String migrationFileName;
+      final List<Column> columns = new ArrayList<>();
+      final List<String> primaryKey = new ArrayList<>();
+      final List<Index> indexes = new ArrayList<>();
+      final List<ForeignKey> foreignKeys = new ArrayList<>();
+
+      Table(String name, String migrationFileName) {
+         this.name = name;
+         this.migrationFileName = migrationFileName;
+      }
+
+      int indexOf(String columnName) {
+         for (int index = columns.size() - 1; index >= 0; --index) {
+            if (columns.get(index).name.equals(columnName)) {
+               return index;
+            }
+         }
+         return -1;
+      }
+
+      /**
+       * Remove the column, and remove it from keys and indexes (like database does).
+       */
+      void removeColumn(String columnName) {
+         int index = indexOf(columnName);
+
+         if (index >= 0) {
+            columns.remove(index);
+         }
+
+         primaryKey.remove(columnName);
+         indexes.removeIf(item -> item.columns.remove(columnName) && item.columns.isEmpty());
+         foreignKeys.removeIf(item -> item.columns.contains(columnName));
+      }
+
+      void renameColumn(String from, String to) {
+         int index = indexOf(from);
+
+         if (index >= 0) {
+            columns.set(index, columns.get(index).renamedTo(to));
+         }
+
+         primaryKey.replaceAll(columnName -> columnName.equals(from) ? to : columnName);
+
+         for (Index item : indexes) {
+            item.columns.replaceAll(columnName -> columnName.equals(from) ? to : columnName);
+         }
+         for (ForeignKey item : foreignKeys) {
+            item.columns.replaceAll(columnName -> columnName.equals(from) ? to : columnName);
+         }
+      }
+
+      /**
+       * Add the index, or replace index which has same name.
+       */
+      void putIndex(Index index) {
+         indexes.removeIf(item -> item.name.equals(index.name));
+         indexes.add(index);
+      }
+
+      void putForeignKey(ForeignKey foreignKey) {
+         foreignKeys.removeIf(item -> item.name.equals(foreignKey.name));
+         foreignKeys.add(foreignKey);
+      }
+   }
+
+   /**
+    * Argument which is not a string literal or an array, like `false`, `8, 2`, `User::class`.
+    */
+   private static class Expression {
+      final String text;
+
+      Expression(String text) {
+         this.text = text;
+      }
+   }
+
+   // table name -> table, in order of creation
+   private final Map<String, Table> tables = new LinkedHashMap<>();
+   // migration file name -> names of tables which it creates, alters, renames or drops
+   private final Map<String, List<String>> migration2tables = new HashMap<>();
+
+   private String content;
+   private String fileName;
+
+   // Tokens of current file: type, bounds (content of string is without quotes)
+   private int tokenCount;
+   private int[] tokenTypes = new int[1024];
+   private int[] tokenStarts = new int[1024];
+   private int[] tokenEnds = new int[1024];
+
+   // Calls of current statement, like `string('name')`, `nullable()`, `comment('...')`
+   private final List<String> callNames = new ArrayList<>();
+   private final List<List<Object>> callArgs = new ArrayList<>();
+
+   /**
+    * @return migration files under given folder in order which Laravel runs them (by file name).
+    */
+   static File[] listMigrationFiles(File migrationDir) {
+      File[] migrationFiles = migrationDir.listFiles(file -> file.isFile() && file.getName().endsWith(".php"));
+
+      if (migrationFiles == null) {
+         return new File[0];
+      }
+
+      Arrays.sort(migrationFiles, (a, b) -> a.getName().compareTo(b.getName()));
+
+      return migrationFiles;
+   }
+
+   /**
+    * Replay the migrations in given order.
+    *
+    * @return tables which exist after the last migration, in order of creation.
+    */
+   Map<String, Table> parse(File[] migrationFiles) throws IOException {
+      for (File migrationFile : migrationFiles) {
+         replay(migrationFile.getName(), new String(Files.readAllBytes(migrationFile.toPath()), StandardCharsets.UTF_8));
+      }
+
+      return tables;
+   }
+
+   /**
+    * @return names of tables which the migration creates, alters, renames or drops.
+    */
+   List<String> tablesTouchedBy(String migrationFileName) {
+      return migration2tables.getOrDefault(migrationFileName, Collections.emptyList());
+   }
+
+   private void replay(String fileName, String content) {
+      this.fileName = fileName;
+      this.content = content;
+
+      tokenize();
+
+      for (int index = 0; index + 2 < tokenCount; ++index) {
+         if (type(index) == IDENT && tokenIs(index, "function") && type(index + 1) == IDENT && tokenIs(index + 1, "up")) {
+            int bodyStart = index + 2;
+
+            while (bodyStart < tokenCount && !isSymbol(bodyStart, '{')) {
+               ++bodyStart;
+            }
+
+            replaySchemaCalls(bodyStart + 1, matchClose(bodyStart));
+            return;
+         }
+      }
+
+      DkConsoleLogs.justLog("Skipped migration [%s] since not found function up()", fileName);
+   }
+
+   private void replaySchemaCalls(int from, int to) {
+      for (int index = from; index + 2 < to; ++index) {
+         if (type(index) == IDENT && isSchemaFacade(index) && type(index + 1) == DOUBLE_COLON && type(index + 2) == IDENT) {
+            index = replaySchemaCall(index + 2, to) - 1;
+         }
+      }
+   }
+
+   /**
+    * Replay a chain like `Schema::connection('mysql')->create(...)`.
+    *
+    * @param index index of first method name.
+    * @return index of token after the chain.
+    */
+   private int replaySchemaCall(int index, int to) {
+      while (index + 1 < to && type(index) == IDENT && isSymbol(index + 1, '(')) {
+         String method = text(index);
+         int open = index + 1;
+         int close = matchClose(open);
+
+         if ("create".equals(method) || "table".equals(method)) {
+            replayBlueprint(method, open, close);
+         }
+         else {
+            replaySchemaMethod(method, parseArgs(open, close));
+         }
+
+         index = close + 1;
+
+         if (type(index) != ARROW) {
+            break;
+         }
+
+         ++index;
+      }
+
+      return index;
+   }
+
+   private void replaySchemaMethod(String method, List<Object> args) {
+      switch (method) {
+         case "rename": {
+            String from = stringArg(args, 0, null);
+            String to = stringArg(args, 1, null);
+
+            touch(from);
+            touch(to);
+
+            // Keep the table as it is when either name is unknown
+            if (from == null || to == null) {
+               DkConsoleLogs.justLog("Skipped Schema::rename() in [%s] since table name is not a string literal", fileName);
+               break;
+            }
+
+            Table table = tables.remove(from);
+
+            if (table != null) {
+               table.name = to;
+               tables.put(to, table);
+
+               // Foreign keys follow the renamed table
+               for (Table other : tables.values()) {
+                  for (ForeignKey foreignKey : other.foreignKeys) {
+                     if (from.equals(foreignKey.on)) {
+                        foreignKey.on = to;
+                     }
+                  }
+               }
+            }
+            break;
+         }
+         case "drop":
+         case "dropIfExists": {
+            String tableName = stringArg(args, 0, null);
+
+            if (tableName != null) {
+               tables.remove(tableName);
+            }
+
+            touch(tableName);
+            break;
+         }
+         case "dropColumns": {
+            Table table = tables.get(stringArg(args, 0, ""));
+
+            touch(stringArg(args, 0, null));
+
+            if (table != null) {
+               for (String columnName : stringArgs(args.subList(1, args.size()))) {
+                  table.removeColumn(columnName);
+               }
+            }
+            break;
+         }
+      }
+   }
+
+   /**
+    * Replay `Schema::create('users', function (Blueprint $table) {...})` or `Schema::table(...)`.
+    */
+   private void replayBlueprint(String method, int open, int close) {
+      int tableArgEnd = nextArgEnd(open + 1, close);
+      String tableName = tableArgEnd == open + 2 && type(open + 1) == STRING ? stringValue(open + 1) : null;
+
+      if (tableName == null) {
+         DkConsoleLogs.justLog("Skipped Schema::%s() in [%s] since table name is not a string literal", method, fileName);
+         return;
+      }
+
+      Table table = tables.get(tableName);
+
+      touch(tableName);
+
+      if ("create".equals(method) || table == null) {
+         if (table == null && "table".equals(method)) {
+            DkConsoleLogs.justLog("Table [%s] in [%s] was not created by previous migrations", tableName, fileName);
+         }
+         else if (table != null) {
+            DkConsoleLogs.justLog("Table [%s] in [%s] was already created in [%s], it is replaced",
+               tableName, fileName, table.migrationFileName);
+         }
+
+         tables.remove(tableName);
+         tables.put(tableName, table = new Table(tableName, fileName));
+      }
+
+      // Body of closure `function (Blueprint $table) {...}` or `fn (Blueprint $table) => ...`
+      String blueprintVar = null;
+
+      for (int index = tableArgEnd + 1; index < close; ++index) {
+         if (blueprintVar == null && type(index) == IDENT && content.charAt(tokenStarts[index]) == '$') {
+            blueprintVar = text(index);
+         }
+         else if (isSymbol(index, '{')) {
+            replayBlueprintBody(table, blueprintVar, index + 1, matchClose(index));
+            return;
+         }
+         else if (type(index) == DOUBLE_ARROW) {
+            replayBlueprintBody(table, blueprintVar, index + 1, close);
+            return;
+         }
+      }
+   }
+
+   private void touch(String tableName) {
+      if (tableName != null) {
+         List<String> tableNames = migration2tables.computeIfAbsent(fileName, key -> new ArrayList<>(1));
+
+         if (!tableNames.contains(tableName)) {
+            tableNames.add(tableName);
+         }
+      }
+   }
+
+   private void replayBlueprintBody(Table table, String blueprintVar, int from, int to) {
+      for (int index = from; index + 1 < to; ++index) {
+         if (type(index) == IDENT && type(index + 1) == ARROW
+            && (blueprintVar == null ? content.charAt(tokenStarts[index]) == '$' : tokenIs(index, blueprintVar))) {
+            index = replayBlueprintStatement(table, index + 1, to) - 1;
+         }
+      }
+   }
+
+   /**
+    * Replay a statement like `$table->string('name')->nullable()->comment('...')`.
+    *
+    * @param index index of first `->`.
+    * @return index of token after the statement.
+    */
+   private int replayBlueprintStatement(Table table, int index, int to) {
+      callNames.clear();
+      callArgs.clear();
+
+      while (index + 2 < to && type(index) == ARROW && type(index + 1) == IDENT && isSymbol(index + 2, '(')) {
+         int close = matchClose(index + 2);
+
+         callNames.add(text(index + 1));
+         callArgs.add(parseArgs(index + 2, close));
+
+         index = close + 1;
+      }
+
+      if (callNames.size() > 0) {
+         List<Column> columns = createColumns(callNames.get(0), callArgs.get(0));
+
+         if (columns != null) {
+            addColumns(table, columns);
+         }
+         else if ("foreign".equals(callNames.get(0))) {
+            List<Object> args = callArgs.get(0);
+            List<String> columnNames = args.size() > 0 ? columnsOf(args.get(0)) : new ArrayList<>();
+
+            if (columnNames.size() > 0) {
+               putForeignKey(table, columnNames, stringArg(args, 1, null));
+            }
+         }
+         else {
+            replayBlueprintCommand(table, callNames.get(0), callArgs.get(0));
+         }
+      }
+
+      return index;
+   }
+
+   /**
+    * Apply modifiers (like `->nullable()->after('id')`) of current statement to the columns, then put them to the table.
+    */
+   private void addColumns(Table table, List<Column> columns) {
+      boolean change = false;
+      boolean first = false;
+      boolean foreign = false;
+      String after = null;
+      // Index modifiers like `->unique()`: type and name (null for default name) of each
+      List<String> indexTypes = new ArrayList<>(1);
+      List<String> indexNames = new ArrayList<>(1);
+
+      for (int callIndex = 1, callCount = callNames.size(); callIndex < callCount; ++callIndex) {
+         List<Object> args = callArgs.get(callIndex);
+
+         switch (callNames.get(callIndex)) {
+            case "nullable": {
+               boolean nullable = args.size() == 0 || !(args.get(0) instanceof Expression)
+                  || !"false".equalsIgnoreCase(((Expression) args.get(0)).text);
+
+               for (Column column : columns) {
+                  column.nullable = nullable;
+               }
+               break;
+            }
+            case "comment": {
+               String comment = stringArg(args, 0, null);
+
+               if (comment != null) {
+                  for (Column column : columns) {
+                     column.comment = comment;
+                  }
+               }
+               break;
+            }
+            case "after": {
+               after = stringArg(args, 0, null);
+               break;
+            }
+            case "first": {
+               first = true;
+               break;
+            }
+            case "change": {
+               change = true;
+               break;
+            }
+            case "unsigned": {
+               for (Column column : columns) {
+                  column.unsigned = true;
+               }
+               break;
+            }
+            case "autoIncrement": {
+               for (Column column : columns) {
+                  column.autoIncrement = true;
+               }
+               break;
+            }
+            case "primary":
+            case "unique":
+            case "index":
+            case "fulltext":
+            case "fullText":
+            case "spatialIndex": {
+               indexTypes.add(callNames.get(callIndex).toLowerCase(Locale.ROOT));
+               indexNames.add(stringArg(args, 0, null));
+               break;
+            }
+            case "constrained":
+            case "references": {
+               foreign = true;
+               break;
+            }
+         }
+      }
+
+      // -1 means append
+      int position = -1;
+
+      if (first) {
+         position = 0;
+      }
+      else if (after != null) {
+         int afterIndex = table.indexOf(after);
+         position = afterIndex < 0 ? -1 : afterIndex + 1;
+      }
+
+      for (Column column : columns) {
+         int existingIndex = table.indexOf(column.name);
+
+         // Changed (or redefined) column keeps its position if not moved
+         if (existingIndex >= 0 && position < 0) {
+            table.columns.set(existingIndex, column);
+            continue;
+         }
+         if (existingIndex >= 0) {
+            table.columns.remove(existingIndex);
+
+            if (existingIndex < position) {
+               --position;
+            }
+         }
+         else if (change) {
+            DkConsoleLogs.justLog("Changed column [%s.%s] in [%s] does not exist", table.name, column.name, fileName);
+         }
+
+         if (position < 0) {
+            table.columns.add(column);
+         }
+         else {
+            table.columns.add(position++, column);
+         }
+
+         if (column.autoIncrement && !change) {
+            table.primaryKey.clear();
+            table.primaryKey.add(column.name);
+         }
+
+         for (int index = 0; index < indexTypes.size(); ++index) {
+            putIndex(table, indexTypes.get(index), new ArrayList<>(List.of(column.name)), indexNames.get(index));
+         }
+      }
+
+      // Morphs are indexed by type and id
+      if (columns.size() == 2 && callNames.get(0).endsWith("orphs")) {
+         putIndex(table, "index", new ArrayList<>(List.of(columns.get(0).name, columns.get(1).name)), null);
+      }
+      if (foreign) {
+         putForeignKey(table, new ArrayList<>(List.of(columns.get(0).name)), null);
+      }
+   }
+
+   /**
+    * @param type one of `primary`, `unique`, `index`, `fulltext`, `spatialindex`.
+    * @param name name of index, null for default name.
+    */
+   private static void putIndex(Table table, String type, List<String> columnNames, String name) {
+      if ("primary".equals(type)) {
+         table.primaryKey.clear();
+         table.primaryKey.addAll(columnNames);
+      }
+      else {
+         table.putIndex(new Index(name != null ? name : indexNameOf(table, columnNames, type), type, columnNames));
+      }
+   }
+
+   /**
+    * Add foreign key of the columns, its reference and actions are taken from calls of current statement like
+    * `->references('id')->on('users')->cascadeOnDelete()` or `->constrained()`.
+    *
+    * @param name name of foreign key, null for default name.
+    */
+   private void putForeignKey(Table table, List<String> columnNames, String name) {
+      ForeignKey foreignKey = new ForeignKey(name != null ? name : indexNameOf(table, columnNames, "foreign"), columnNames);
+
+      for (int callIndex = 1, callCount = callNames.size(); callIndex < callCount; ++callIndex) {
+         List<Object> args = callArgs.get(callIndex);
+
+         switch (callNames.get(callIndex)) {
+            case "constrained": {
+               // Like Laravel, `user_id` references `id` of `users` by default
+               String referencedColumn = stringArg(args, 1, "id");
+               String columnName = columnNames.get(0);
+               String suffix = "_" + referencedColumn;
+               String baseName = columnName.endsWith(suffix) ? columnName.substring(0, columnName.length() - suffix.length()) : columnName;
+
+               foreignKey.on = stringArg(args, 0, pluralOf(baseName));
+               foreignKey.references = new ArrayList<>(List.of(referencedColumn));
+               foreignKey.name = stringArg(args, 2, foreignKey.name);
+               break;
+            }
+            case "references": {
+               foreignKey.references = args.size() > 0 ? columnsOf(args.get(0)) : null;
+               break;
+            }
+            case "on": {
+               foreignKey.on = stringArg(args, 0, null);
+               break;
+            }
+            case "onDelete": {
+               foreignKey.onDelete = stringArg(args, 0, null);
+               break;
+            }
+            case "onUpdate": {
+               foreignKey.onUpdate = stringArg(args, 0, null);
+               break;
+            }
+            case "cascadeOnDelete": {
+               foreignKey.onDelete = "cascade";
+               break;
+            }
+            case "restrictOnDelete": {
+               foreignKey.onDelete = "restrict";
+               break;
+            }
+            case "nullOnDelete": {
+               foreignKey.onDelete = "set null";
+               break;
+            }
+            case "noActionOnDelete": {
+               foreignKey.onDelete = "no action";
+               break;
+            }
+            case "cascadeOnUpdate": {
+               foreignKey.onUpdate = "cascade";
+               break;
+            }
+            case "restrictOnUpdate": {
+               foreignKey.onUpdate = "restrict";
+               break;
+            }
+            case "nullOnUpdate": {
+               foreignKey.onUpdate = "set null";
+               break;
+            }
+            case "noActionOnUpdate": {
+               foreignKey.onUpdate = "no action";
+               break;
+            }
+         }
+      }
+
+      table.putForeignKey(foreignKey);
+   }
+
+   /**
+    * @return default name of index like Laravel gives, for eg,. `users_email_unique`, `posts_user_id_foreign`.
+    */
+   private static String indexNameOf(Table table, List<String> columnNames, String type) {
+      String name = table.name + '_' + String.join("_", columnNames) + '_' + type;
+      return name.replace('-', '_').replace('.', '_').toLowerCase(Locale.ROOT);
+   }
+
+   /**
+    * @return plural of English noun for common cases, for eg,. `user` -> `users`, `category` -> `categories`.
+    */
+   private static String pluralOf(String noun) {
+      int N = noun.length();
+
+      if (N > 1 && noun.charAt(N - 1) == 'y' && "aeiou".indexOf(noun.charAt(N - 2)) < 0) {
+         return noun.substring(0, N - 1) + "ies";
+      }
+      if (noun.endsWith("s") || noun.endsWith("x") || noun.endsWith("z") || noun.endsWith("ch") || noun.endsWith("sh")) {
+         return noun + "es";
+      }
+      return noun + "s";
+   }
+
+   private void replayBlueprintCommand(Table table, String method, List<Object> args) {
+      switch (method) {
+         case "dropColumn": {
+            for (String columnName : stringArgs(args)) {
+               table.removeColumn(columnName);
+            }
+            break;
+         }
+         case "renameColumn": {
+            String from = stringArg(args, 0, null);
+            String to = stringArg(args, 1, null);
+
+            if (from != null && to != null) {
+               table.renameColumn(from, to);
+            }
+            break;
+         }
+         case "primary":
+         case "unique":
+         case "index":
+         case "fulltext":
+         case "fullText":
+         case "spatialIndex": {
+            List<String> columnNames = args.size() > 0 ? columnsOf(args.get(0)) : new ArrayList<>();
+
+            if (columnNames.size() > 0) {
+               putIndex(table, method.toLowerCase(Locale.ROOT), columnNames, stringArg(args, 1, null));
+            }
+            break;
+         }
+         case "dropPrimary": {
+            table.primaryKey.clear();
+            break;
+         }
+         case "dropUnique":
+         case "dropIndex":
+         case "dropFullText":
+         case "dropSpatialIndex": {
+            String type = "dropIndex".equals(method) ? "index" : method.substring("drop".length()).toLowerCase(Locale.ROOT);
+            String name = indexNameArg(table, args, type);
+            table.indexes.removeIf(item -> item.name.equals(name));
+            break;
+         }
+         case "dropForeign": {
+            String name = indexNameArg(table, args, "foreign");
+            table.foreignKeys.removeIf(item -> item.name.equals(name));
+            break;
+         }
+         case "renameIndex": {
+            String from = stringArg(args, 0, null);
+            String to = stringArg(args, 1, null);
+
+            for (Index index : table.indexes) {
+               if (index.name.equals(from) && to != null) {
+                  index.name = to;
+               }
+            }
+            break;
+         }
+         case "dropTimestamps":
+         case "dropTimestampsTz":
+         case "dropDatetimes": {
+            table.removeColumn("created_at");
+            table.removeColumn("updated_at");
+            break;
+         }
+         case "dropSoftDeletes":
+         case "dropSoftDeletesTz": {
+            table.removeColumn(stringArg(args, 0, "deleted_at"));
+            break;
+         }
+         case "dropRememberToken": {
+            table.removeColumn("remember_token");
+            break;
+         }
+         case "dropMorphs": {
+            String name = stringArg(args, 0, null);
+
+            if (name != null) {
+               table.removeColumn(name + "_type");
+               table.removeColumn(name + "_id");
+            }
+            break;
+         }
+         case "dropConstrainedForeignId": {
+            String columnName = stringArg(args, 0, null);
+
+            if (columnName != null) {
+               table.removeColumn(columnName);
+            }
+            break;
+         }
+      }
+   }
+
+   /**
+    * @return name of index which is given as name like `('users_email_unique')`, or as columns like `(['email'])`.
+    */
+   private static String indexNameArg(Table table, List<Object> args, String type) {
+      if (args.size() > 0 && args.get(0) instanceof List) {
+         return indexNameOf(table, columnsOf(args.get(0)), type);
+      }
+      return stringArg(args, 0, "");
+   }
+
+   /**
+    * @return columns which are created by the blueprint method, or null if the method does not create columns
+    *         (like `index()`, `dropColumn()`...).
+    */
+   private List<Column> createColumns(String method, List<Object> args) {
+      List<Column> columns = new ArrayList<>(2);
+      String phpType = phpTypeOf(method);
+
+      if (phpType != null) {
+         String name = stringArg(args, 0, "id".equals(method) ? "id" : null);
+
+         if (name == null) {
+            DkConsoleLogs.justLog("Skipped column ->%s() in [%s] since its name is not a string literal", method, fileName);
+         }
+         else {
+            boolean autoIncrement = "id".equals(method) || method.endsWith("Increments");
+            Column column = new Column(name, columnTypeOf(method), phpType, false);
+            column.autoIncrement = autoIncrement;
+            column.unsigned = autoIncrement || "foreignId".equals(method) || method.startsWith("unsigned");
+
+            columns.add(column);
+         }
+
+         return columns;
+      }
+
+      switch (method) {
+         case "timestamps":
+         case "timestampsTz":
+         case "nullableTimestamps":
+         case "datetimes": {
+            String type = "timestampsTz".equals(method) ? "timestampTz" : "datetimes".equals(method) ? "dateTime" : "timestamp";
+
+            columns.add(new Column("created_at", type, CARBON, true));
+            columns.add(new Column("updated_at", type, CARBON, true));
+            return columns;
+         }
+         case "softDeletes":
+         case "softDeletesTz":
+         case "softDeletesDatetime": {
+            String type = "softDeletesTz".equals(method) ? "timestampTz" : "softDeletesDatetime".equals(method) ? "dateTime" : "timestamp";
+
+            columns.add(new Column(stringArg(args, 0, "deleted_at"), type, CARBON, true));
+            return columns;
+         }
+         case "rememberToken": {
+            columns.add(new Column("remember_token", "string", "string", true));
+            return columns;
+         }
+         case "morphs":
+         case "nullableMorphs":
+         case "numericMorphs":
+         case "nullableNumericMorphs":
+         case "uuidMorphs":
+         case "nullableUuidMorphs":
+         case "ulidMorphs":
+         case "nullableUlidMorphs": {
+            String name = stringArg(args, 0, null);
+
+            if (name != null) {
+               boolean nullable = method.startsWith("nullable");
+               String idType = method.contains("Uuid") ? "uuid" : method.contains("Ulid") ? "ulid" : "bigInteger";
+               Column idColumn = new Column(name + "_id", idType, "bigInteger".equals(idType) ? "int" : "string", nullable);
+               idColumn.unsigned = "bigInteger".equals(idType);
+
+               columns.add(new Column(name + "_type", "string", "string", nullable));
+               columns.add(idColumn);
+            }
+            return columns;
+         }
+         case "foreignIdFor": {
+            String name = stringArg(args, 1, null);
+
+            if (name == null && args.size() > 0 && args.get(0) instanceof Expression) {
+               name = foreignKeyOf(((Expression) args.get(0)).text);
+            }
+            if (name != null) {
+               Column column = new Column(name, "bigInteger", "int", false);
+               column.unsigned = true;
+
+               columns.add(column);
+            }
+            return columns;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * @return type of column (which Blueprint stores) of the method, for eg,. `id` -> `bigInteger`,
+    *         `unsignedTinyInteger` -> `tinyInteger`, `string` -> `string`.
+    */
+   private static String columnTypeOf(String method) {
+      switch (method) {
+         case "id":
+         case "bigIncrements":
+         case "foreignId": {
+            return "bigInteger";
+         }
+         case "increments":
+         case "integerIncrements": {
+            return "integer";
+         }
+         case "tinyIncrements":
+         case "smallIncrements":
+         case "mediumIncrements": {
+            return method.substring(0, method.length() - "Increments".length()) + "Integer";
+         }
+         case "foreignUuid": {
+            return "uuid";
+         }
+         case "foreignUlid": {
+            return "ulid";
+         }
+      }
+
+      if (method.startsWith("unsigned")) {
+         String type = method.substring("unsigned".length());
+         return Character.toLowerCase(type.charAt(0)) + type.substring(1);
+      }
+
+      return method;
+   }
+
+   /**
+    * @return type in PhpDoc of column which is created by the blueprint method (like `string('name')`),
+    *         or null if the method does not create a column by its first argument.
+    */
+   private static String phpTypeOf(String method) {
+      switch (method) {
+         case "id":
+         case "increments":
+         case "tinyIncrements":
+         case "smallIncrements":
+         case "mediumIncrements":
+         case "integerIncrements":
+         case "bigIncrements":
+         case "integer":
+         case "tinyInteger":
+         case "smallInteger":
+         case "mediumInteger":
+         case "bigInteger":
+         case "unsignedInteger":
+         case "unsignedTinyInteger":
+         case "unsignedSmallInteger":
+         case "unsignedMediumInteger":
+         case "unsignedBigInteger":
+         case "foreignId":
+         case "year": {
+            return "int";
+         }
+         case "boolean": {
+            return "bool";
+         }
+         case "float":
+         case "double":
+         case "unsignedFloat":
+         case "unsignedDouble": {
+            return "float";
+         }
+         // Eloquent returns decimal and uncast date columns as strings, only `timestamps()` and `softDeletes()`
+         // columns are cast to Carbon (see `createColumns()`)
+         case "decimal":
+         case "unsignedDecimal":
+         case "date":
+         case "dateTime":
+         case "dateTimeTz":
+         case "timestamp":
+         case "timestampTz":
+         case "char":
+         case "string":
+         case "tinyText":
+         case "text":
+         case "mediumText":
+         case "longText":
+         case "enum":
+         case "set":
+         case "json":
+         case "jsonb":
+         case "time":
+         case "timeTz":
+         case "binary":
+         case "uuid":
+         case "ulid":
+         case "foreignUuid":
+         case "foreignUlid":
+         case "ipAddress":
+         case "macAddress":
+         case "geometry":
+         case "geography":
+         case "point":
+         case "lineString":
+         case "polygon":
+         case "geometryCollection":
+         case "multiPoint":
+         case "multiLineString":
+         case "multiPolygon": {
+            return "string";
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * @return foreign key of model class like Laravel does, for eg,. `\App\Models\OrderDetail::class` -> `order_detail_id`.
+    */
+   private static String foreignKeyOf(String classExpression) {
+      if (!classExpression.endsWith("::class")) {
+         return null;
+      }
+
+      String className = classExpression.substring(classExpression.lastIndexOf('\\') + 1, classExpression.length() - "::class".length());
+      StringBuilder sb = new StringBuilder(className.length() + 8);
+
+      for (int index = 0, N = className.length(); index < N; ++index) {
+         char ch = className.charAt(index);
+
+         if (Character.isUpperCase(ch)) {
+            if (index > 0) {
+               sb.append('_');
+            }
+            sb.append(Character.toLowerCase(ch));
+         }
+         else {
+            sb.append(ch);
+         }
+      }
+
+      return sb.append("_id").toString();
+   }
+
+   /**
+    * @return arguments between `(` and its matching `)`, each is a string (literal), a list of strings (array)
+    *         or an expression (others).
+    */
+   private List<Object> parseArgs(int open, int close) {
+      List<Object> args = new ArrayList<>();
+
+      for (int start = open + 1; start < close; ) {
+         int end = nextArgEnd(start, close);
+
+         if (end - start == 1 && type(start) == STRING) {
+            args.add(stringValue(start));
+         }
+         else if (end > start && (isSymbol(start, '[') || (tokenIs(start, "array") && isSymbol(start + 1, '(')))) {
+            List<String> values = new ArrayList<>();
+
+            for (int index = start; index < end; ++index) {
+               if (type(index) == STRING) {
+                  values.add(stringValue(index));
+               }
+            }
+
+            args.add(values);
+         }
+         else if (end > start) {
+            // Closing quote of string is not included in its token
+            int textEnd = tokenEnds[end - 1] + (type(end - 1) == STRING ? 1 : 0);
+            int textStart = tokenStarts[start] - (type(start) == STRING ? 1 : 0);
+
+            args.add(new Expression(content.substring(textStart, textEnd)));
+         }
+
+         start = end + 1;
+      }
+
+      return args;
+   }
+
+   /**
+    * @return column names of argument which is a name like `'email'` or names like `['first_name', 'last_name']`.
+    */
+   private static List<String> columnsOf(Object arg) {
+      List<String> columnNames = new ArrayList<>(2);
+
+      if (arg instanceof String) {
+         columnNames.add((String) arg);
+      }
+      else if (arg instanceof List) {
+         for (Object value : (List<?>) arg) {
+            columnNames.add((String) value);
+         }
+      }
+
+      return columnNames;
+   }
+
+   private static String stringArg(List<Object> args, int index, String defaultValue) {
+      if (index < args.size() && args.get(index) instanceof String) {
+         return (String) args.get(index);
+      }
+      return defaultValue;
+   }
+
+   /**
+    * @return strings of arguments like `('a', 'b')` or `(['a', 'b'])`.
+    */
+   private static List<String> stringArgs(List<Object> args) {
+      List<String> result = new ArrayList<>();
+
+      for (Object arg : args) {
+         if (arg instanceof String) {
+            result.add((String) arg);
+         }
+         else if (arg instanceof List) {
+            for (Object value : (List<?>) arg) {
+               result.add((String) value);
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * @return index of `,` which ends the argument starting at given index, or `close` if it is the last one.
+    */
+   private int nextArgEnd(int start, int close) {
+      int depth = 0;
+
+      for (int index = start; index < close; ++index) {
+         if (type(index) == SYMBOL) {
+            char ch = content.charAt(tokenStarts[index]);
+
+            if (ch == '(' || ch == '[' || ch == '{') {
+               ++depth;
+            }
+            else if (ch == ')' || ch == ']' || ch == '}') {
+               --depth;
+            }
+            else if (ch == ',' && depth == 0) {
+               return index;
+            }
+         }
+      }
+
+      return close;
+   }
+
+   /**
+    * @return index of bracket which closes the bracket at given index, or number of tokens if not found.
+    */
+   private int matchClose(int open) {
+      int depth = 0;
+
+      for (int index = open; index < tokenCount; ++index) {
+         if (type(index) == SYMBOL) {
+            char ch = content.charAt(tokenStarts[index]);
+
+            if (ch == '(' || ch == '[' || ch == '{') {
+               ++depth;
+            }
+            else if ((ch == ')' || ch == ']' || ch == '}') && --depth == 0) {
+               return index;
+            }
+         }
+      }
+
+      return tokenCount;
+   }
+
+   /**
+    * @return true if the token is `Schema` or full name of it, like `\Illuminate\Support\Facades\Schema`.
+    */
+   private boolean isSchemaFacade(int index) {
+      return tokenIs(index, "Schema")
+         || (tokenEnds[index] - tokenStarts[index] > 7 && content.startsWith("\\Schema", tokenEnds[index] - 7));
+   }
+
+   private int type(int index) {
+      return index < tokenCount ? tokenTypes[index] : 0;
+   }
+
+   private boolean isSymbol(int index, char symbol) {
+      return type(index) == SYMBOL && content.charAt(tokenStarts[index]) == symbol;
+   }
+
+   private boolean tokenIs(int index, String text) {
+      return index < tokenCount && tokenEnds[index] - tokenStarts[index] == text.length()
+         && content.startsWith(text, tokenStarts[index]);
+   }
+
+   private String text(int index) {
+      return content.substring(tokenStarts[index], tokenEnds[index]);
+   }
+
+   /**
+    * @return value of string token, escaped chars are unescaped.
+    */
+   private String stringValue(int index) {
+      int start = tokenStarts[index];
+      int end = tokenEnds[index];
+      int escapeIndex = content.indexOf('\\', start);
+
+      if (escapeIndex < 0 || escapeIndex >= end) {
+         return content.substring(start, end);
+      }
+
+      boolean isDoubleQuoted = content.charAt(start - 1) == '"';
+      StringBuilder sb = new StringBuilder(end - start);
+
+      for (int pos = start; pos < end; ++pos) {
+         char ch = content.charAt(pos);
+
+         if (ch == '\\' && pos + 1 < end) {
+            char next = content.charAt(pos + 1);
+
+            if (next == '\\' || next == '\'' || next == '"' || (isDoubleQuoted && next == '$')) {
+               ch = next;
+               ++pos;
+            }
+            else if (isDoubleQuoted && (next == 'n' || next == 't')) {
+               ch = next == 'n' ? '\n' : '\t';
+               ++pos;
+            }
+         }
+
+         sb.append(ch);
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * Split content into tokens, spaces and comments are skipped.
+    */
+   private void tokenize() {
+      tokenCount = 0;
+
+      for (int pos = 0, N = content.length(); pos < N; ) {
+         char ch = content.charAt(pos);
+
+         if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+            ++pos;
+            continue;
+         }
+         if (ch == '#' || (ch == '/' && pos + 1 < N && content.charAt(pos + 1) == '/')) {
+            int lineEnd = content.indexOf('\n', pos);
+            pos = lineEnd < 0 ? N : lineEnd + 1;
+            continue;
+         }
+         if (ch == '/' && pos + 1 < N && content.charAt(pos + 1) == '*') {
+            int commentEnd = content.indexOf("*/", pos + 2);
+            pos = commentEnd < 0 ? N : commentEnd + 2;
+            continue;
+         }
+
+         int type;
+         int start = pos;
+
+         if (ch == '\'' || ch == '"') {
+            start = ++pos;
+
+            while (pos < N && content.charAt(pos) != ch) {
+               pos += content.charAt(pos) == '\\' ? 2 : 1;
+            }
+
+            pos = Math.min(pos, N);
+            addToken(STRING, start, pos);
+            ++pos;
+            continue;
+         }
+         if (isWordChar(ch) || ch == '$') {
+            do {
+               ++pos;
+            }
+            while (pos < N && isWordChar(content.charAt(pos)));
+
+            type = IDENT;
+         }
+         else if (ch == ':' && pos + 1 < N && content.charAt(pos + 1) == ':') {
+            pos += 2;
+            type = DOUBLE_COLON;
+         }
+         else if ((ch == '-' || ch == '=') && pos + 1 < N && content.charAt(pos + 1) == '>') {
+            pos += 2;
+            type = ch == '-' ? ARROW : DOUBLE_ARROW;
+         }
+         else {
+            ++pos;
+            type = SYMBOL;
+         }
+
+         addToken(type, start, pos);
+      }
+   }
+
+   private void addToken(int type, int start, int end) {
+      if (tokenCount == tokenTypes.length) {
+         int capacity = tokenCount << 1;
+
+         tokenTypes = Arrays.copyOf(tokenTypes, capacity);
+         tokenStarts = Arrays.copyOf(tokenStarts, capacity);
+         tokenEnds = Arrays.copyOf(tokenEnds, capacity);
+      }
+
+      tokenTypes[tokenCount] = type;
+      tokenStarts[tokenCount] = start;
+      tokenEnds[tokenCount] = end;
+      ++tokenCount;
+   }
+
+   private static boolean isWordChar(char ch) {
+      return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_' || ch == '\\';
+   }
+}
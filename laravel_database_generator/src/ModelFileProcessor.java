@@ -0,0 +1,241 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Processes a model file in one pass over its lines, which are decoded once into a reused `char[]`:
+ * comment lines are stripped, runs of blank lines are collapsed into one (blank lines at end of file are dropped),
+ * given document is inserted before the class, and `@property` fields of the result are collected.
+ * <pre>{@code
+ *    processor.load(modelFile);
+ *    StringBuilder out = writer.begin();
+ *    Map<String, String> field2comment = processor.rewrite(document, out);  // null if not found class declaration
+ *    writer.commit(modelFile);
+ * }</pre>
+ *
+ * Note: this is not thread-safe since buffers are reused between files, each thread should own one.
+ */
+class ModelFileProcessor {
+   private static final String PROPERTY_TAG = "@property ";
+   // Modifiers which may precede `class` in a class declaration
+   private static final String[] CLASS_MODIFIERS = {"final ", "abstract ", "readonly "};
+
+   private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+   private ByteBuffer byteBuffer = ByteBuffer.allocate(8192);
+   private CharBuffer charBuffer = CharBuffer.allocate(8192);
+   private int length;
+
+   void load(File file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         int size = (int) channel.size();
+
+         if (byteBuffer.capacity() < size) {
+            byteBuffer = ByteBuffer.allocate(Math.max(size, byteBuffer.capacity() << 1));
+         }
+
+         byteBuffer.clear();
+
+         while (byteBuffer.position() < size) {
+            if (channel.read(byteBuffer) < 0) {
+               break;
+            }
+         }
+
+         byteBuffer.flip();
+      }
+
+      // Number of chars of UTF-8 content is at most its number of bytes
+      if (charBuffer.capacity() < byteBuffer.limit()) {
+         charBuffer = CharBuffer.allocate(Math.max(byteBuffer.limit(), charBuffer.capacity() << 1));
+      }
+
+      charBuffer.clear();
+      decoder.reset();
+      decoder.decode(byteBuffer, charBuffer, true);
+      decoder.flush(charBuffer);
+
+      length = charBuffer.position();
+   }
+
+   /**
+    * Append content of loaded file to `out` (each line ends with `\n`), where comments are replaced with the document.
+    *
+    * @param document lines which are inserted before each class declaration (like `final class User extends Model`).
+    * @return `@property` fields (name -> comment) of the result, or null if not found class declaration
+    *         (the document was not inserted).
+    */
+   Map<String, String> rewrite(List<String> document, StringBuilder out) {
+      Map<String, String> field2comment = new LinkedHashMap<>();
+      boolean foundClass = false;
+      char[] chars = charBuffer.array();
+      // Last blank line of current run of blank lines, it is appended only when a non-blank line follows
+      int pendingBlankStart = -1;
+      int pendingBlankEnd = -1;
+
+      for (int lineStart = 0; lineStart < length; ) {
+         int lineEnd = lineEndOf(chars, lineStart);
+         int nextLineStart = lineEnd < length ? lineEnd + 1 : length;
+         int contentEnd = lineEnd > lineStart && chars[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+         int trimmedStart = skipSpaces(chars, lineStart, contentEnd);
+
+         if (trimmedStart == contentEnd) {
+            pendingBlankStart = lineStart;
+            pendingBlankEnd = contentEnd;
+         }
+         else if (!startsWith(chars, trimmedStart, contentEnd, "/*") && !startsWith(chars, trimmedStart, contentEnd, "*")) {
+            if (pendingBlankStart >= 0) {
+               out.append(chars, pendingBlankStart, pendingBlankEnd - pendingBlankStart).append('\n');
+               pendingBlankStart = -1;
+            }
+
+            if (isClassDeclaration(chars, trimmedStart, contentEnd)) {
+               foundClass = true;
+
+               for (String line : document) {
+                  out.append(line).append('\n');
+                  collectProperty(line, field2comment);
+               }
+            }
+
+            out.append(chars, lineStart, contentEnd - lineStart).append('\n');
+         }
+
+         lineStart = nextLineStart;
+      }
+
+      return foundClass ? field2comment : null;
+   }
+
+   /**
+    * @return `@property` fields (name -> comment) of loaded file.
+    */
+   Map<String, String> collectProperties() {
+      Map<String, String> field2comment = new LinkedHashMap<>();
+      char[] chars = charBuffer.array();
+
+      for (int lineStart = 0; lineStart < length; ) {
+         int lineEnd = lineEndOf(chars, lineStart);
+         int contentEnd = lineEnd > lineStart && chars[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+
+         // Most lines are not documents, so check the tag before making a string of the line
+         if (indexOf(chars, lineStart, contentEnd, PROPERTY_TAG) >= 0) {
+            collectProperty(new String(chars, lineStart, contentEnd - lineStart), field2comment);
+         }
+
+         lineStart = lineEnd < length ? lineEnd + 1 : length;
+      }
+
+      return field2comment;
+   }
+
+   /**
+    * Collect field of line like ` * @property string|null $name Comment of name`.
+    */
+   static void collectProperty(String line, Map<String, String> field2comment) {
+      int tagIndex = line.indexOf(PROPERTY_TAG);
+
+      if (tagIndex < 0) {
+         return;
+      }
+
+      int startIndex = line.indexOf('$', tagIndex + PROPERTY_TAG.length());
+
+      if (startIndex < 0) {
+         return;
+      }
+
+      ++startIndex;
+      int endIndex = line.indexOf(' ', startIndex);
+
+      if (endIndex < 0) {
+         endIndex = line.length();
+      }
+
+      if (endIndex > startIndex) {
+         String fieldName = line.substring(startIndex, endIndex).trim();
+         String fieldComment = line.substring(endIndex).trim();
+
+         if (fieldName.length() > 0) {
+            field2comment.put(fieldName, fieldComment);
+         }
+      }
+   }
+
+   /**
+    * @return true if given trimmed line starts with `class ` after optional modifiers like `final`, `abstract`.
+    */
+   private static boolean isClassDeclaration(char[] chars, int start, int end) {
+      while (true) {
+         String modifier = null;
+
+         for (String candidate : CLASS_MODIFIERS) {
+            if (startsWith(chars, start, end, candidate)) {
+               modifier = candidate;
+               break;
+            }
+         }
+
+         if (modifier == null) {
+            return startsWith(chars, start, end, "class ");
+         }
+
+         start = skipSpaces(chars, start + modifier.length(), end);
+      }
+   }
+
+   private int lineEndOf(char[] chars, int lineStart) {
+      int index = lineStart;
+
+      while (index < length && chars[index] != '\n') {
+         ++index;
+      }
+
+      return index;
+   }
+
+   /**
+    * @return index of first char which is not a space (like `String.trim()`, chars up to ' ' are spaces) in [start, end).
+    */
+   private static int skipSpaces(char[] chars, int start, int end) {
+      while (start < end && chars[start] <= ' ') {
+         ++start;
+      }
+      return start;
+   }
+
+   private static boolean startsWith(char[] chars, int start, int end, String prefix) {
+      if (end - start < prefix.length()) {
+         return false;
+      }
+      for (int index = prefix.length() - 1; index >= 0; --index) {
+         if (chars[start + index] != prefix.charAt(index)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static int indexOf(char[] chars, int start, int end, String target) {
+      char first = target.charAt(0);
+
+      for (int index = start, last = end - target.length(); index <= last; ++index) {
+         if (chars[index] == first && startsWith(chars, index, end, target)) {
+            return index;
+         }
+      }
+
+      return -1;
+   }
+}
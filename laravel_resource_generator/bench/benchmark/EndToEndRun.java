@@ -0,0 +1,167 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * End-to-end timed run of `GenerateResource` over a synthetic project: a cold run (no scan cache,
+ * every lang call is replaced) followed by a warm re-run (scan cache is valid, nothing to replace).
+ * Reports wall time, allocated bytes and peak heap of each run.
+ * <pre>{@code
+ *    java -cp ... benchmark.EndToEndRun views:10000 controllers:2000 calls:8 groups:50 routes:10 langFiles:3 langEntries:2000
+ * }</pre>
+ */
+public class EndToEndRun {
+   // Allocated bytes of worker threads are sampled at this interval, since pool threads are gone after a run
+   private static final long SAMPLE_INTERVAL_MILLIS = 5;
+
+   private static final com.sun.management.ThreadMXBean threadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+   public static void main(String... args) throws Throwable {
+      Map<String, String> options = new HashMap<>();
+      options.put("views", "7500");
+      options.put("controllers", "2500");
+      options.put("calls", "8");
+      options.put("groups", "50");
+      options.put("routes", "10");
+      options.put("langFiles", "3");
+      options.put("langEntries", "2000");
+      options.put("parallel", "false");
+      options.put("keep", "false");
+
+      for (String arg : args) {
+         String[] arr = arg.split(":", 2);
+
+         if (arr.length != 2 || !options.containsKey(arr[0])) {
+            System.out.println("Invalid argument: " + arg + ", available arguments (with default value): " + options);
+            System.exit(-1);
+         }
+
+         options.put(arr[0], arr[1]);
+      }
+
+      LaravelCorpus.Shape shape = new LaravelCorpus.Shape();
+      shape.viewCount = Integer.parseInt(options.get("views"));
+      shape.controllerCount = Integer.parseInt(options.get("controllers"));
+      shape.langCallsPerFile = Integer.parseInt(options.get("calls"));
+      shape.routeGroupCount = Integer.parseInt(options.get("groups"));
+      shape.routesPerGroup = Integer.parseInt(options.get("routes"));
+      shape.langFileCount = Integer.parseInt(options.get("langFiles"));
+      shape.entriesPerLangFile = Integer.parseInt(options.get("langEntries"));
+
+      File rootDir = LaravelCorpus.createTempDir("end-to-end");
+
+      try {
+         LaravelCorpus.writeProject(rootDir, shape);
+
+         System.out.println("Project: " + shape + " at " + rootDir);
+
+         String parallel = "parallel:" + options.get("parallel");
+         run("cold", rootDir, parallel);
+         run("warm", rootDir, parallel);
+      }
+      finally {
+         if (!Boolean.parseBoolean(options.get("keep"))) {
+            LaravelCorpus.deleteRecursively(rootDir);
+         }
+      }
+   }
+
+   private static void run(String name, File rootDir, String... args) throws Throwable {
+      System.gc();
+
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+         if (pool.getType() == MemoryType.HEAP) {
+            pool.resetPeakUsage();
+         }
+      }
+
+      AllocationSampler sampler = new AllocationSampler();
+      sampler.start();
+
+      long startTime = System.nanoTime();
+      GeneratorBridge.generate(rootDir, args);
+      long elapsedNanos = System.nanoTime() - startTime;
+
+      long allocatedBytes = sampler.finish();
+      long peakHeapBytes = 0;
+
+      // Sum of peaks of pools is upper bound of peak of whole heap
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+         if (pool.getType() == MemoryType.HEAP) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+         }
+      }
+
+      System.out.println(String.format(Locale.ROOT, "[%s] wall %.0f ms, allocated %.1f MB, peak heap %.1f MB",
+         name, elapsedNanos / 1e6, allocatedBytes / 1e6, peakHeapBytes / 1e6));
+   }
+
+   /**
+    * Sums bytes which are allocated by all threads (include worker threads which end before the run ends)
+    * between `start()` and `finish()`.
+    */
+   private static class AllocationSampler extends Thread {
+      // thread id -> allocated bytes at start (or when the thread was seen first), and at last sample
+      private final Map<Long, Long> startBytes = new HashMap<>();
+      private final Map<Long, Long> lastBytes = new HashMap<>();
+      private volatile boolean running = true;
+
+      AllocationSampler() {
+         setDaemon(true);
+         sample();
+         startBytes.putAll(lastBytes);
+      }
+
+      @Override
+      public void run() {
+         while (running) {
+            synchronized (this) {
+               sample();
+            }
+
+            try {
+               Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            }
+            catch (InterruptedException e) {
+               return;
+            }
+         }
+      }
+
+      long finish() throws InterruptedException {
+         running = false;
+         join();
+
+         long total = 0;
+
+         synchronized (this) {
+            sample();
+
+            for (Map.Entry<Long, Long> entry : lastBytes.entrySet()) {
+               total += entry.getValue() - startBytes.getOrDefault(entry.getKey(), 0L);
+            }
+         }
+
+         return total;
+      }
+
+      private void sample() {
+         long[] threadIds = threadBean.getAllThreadIds();
+         long[] allocatedBytes = threadBean.getThreadAllocatedBytes(threadIds);
+
+         for (int index = 0; index < threadIds.length; ++index) {
+            // Allocation of the sampler itself is not counted
+            if (allocatedBytes[index] >= 0 && threadIds[index] != getId()) {
+               lastBytes.put(threadIds[index], allocatedBytes[index]);
+            }
+         }
+      }
+   }
+}
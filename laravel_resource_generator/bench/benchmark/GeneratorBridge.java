@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classes of the tool are in default package which can not be imported from a named package
+ * (JMH does not accept benchmarks in default package), so benchmarks access them via method handles.
+ */
+final class GeneratorBridge {
+   private static final MethodHandle newGenerator;
+   private static final MethodHandle start;
+   private static final MethodHandle collectLangKeyValues;
+   private static final MethodHandle collectWebRoutes;
+   private static final MethodHandle makeValidFieldKey;
+
+   private static final MethodHandle newScanner;
+   private static final MethodHandle replaceAndCollect;
+   private static final MethodHandle newSourceFile;
+   private static final MethodHandle load;
+   private static final MethodHandle newKeyBuffer;
+
+   // Generator logs each handled file, which would flood output of benchmarks
+   private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+   });
+
+   static {
+      try {
+         Class<?> generatorClass = Class.forName("GenerateResource");
+         Class<?> scannerClass = Class.forName("LangCallScanner");
+         Class<?> sourceFileClass = Class.forName("SourceFile");
+         Class<?> keyBufferClass = Class.forName("LangKeyBuffer");
+
+         newGenerator = constructor(generatorClass, String.class, String[].class);
+         start = method(generatorClass, "start");
+         collectLangKeyValues = method(generatorClass, "collectLangKeyValues", File.class, String.class);
+         collectWebRoutes = method(generatorClass, "collectWebRoutes", File.class);
+         makeValidFieldKey = method(generatorClass, "makeValidFieldKey", String[].class);
+
+         newScanner = constructor(scannerClass, String[].class, String[].class);
+         replaceAndCollect = method(scannerClass, "replaceAndCollect",
+            String.class, sourceFileClass, boolean.class, keyBufferClass, List.class);
+         newSourceFile = constructor(sourceFileClass);
+         load = method(sourceFileClass, "load", File.class);
+         newKeyBuffer = constructor(keyBufferClass);
+      }
+      catch (Exception e) {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   private GeneratorBridge() {
+   }
+
+   /**
+    * Run a whole generation over given Laravel project, without output to console.
+    *
+    * @param args arguments like `parallel:true`.
+    */
+   static void generate(File rootDir, String... args) throws Throwable {
+      PrintStream out = System.out;
+      System.setOut(DISCARD);
+
+      try {
+         start.invoke(newGenerator.invoke(rootDir.getPath(), args));
+      }
+      finally {
+         System.setOut(out);
+      }
+   }
+
+   /**
+    * @param args arguments like `cache:false`.
+    */
+   static Object newGenerator(File rootDir, String... args) throws Throwable {
+      return newGenerator.invoke(rootDir.getPath(), args);
+   }
+
+   @SuppressWarnings("unchecked")
+   static Map<String, String> collectLangKeyValues(Object generator, File langFile) throws Throwable {
+      String content = new String(Files.readAllBytes(langFile.toPath()), StandardCharsets.UTF_8);
+      return (Map<String, String>) collectLangKeyValues.invoke(generator, langFile, content);
+   }
+
+   @SuppressWarnings("unchecked")
+   static Map<String, String> collectWebRoutes(Object generator, File routesDir) throws Throwable {
+      return (Map<String, String>) collectWebRoutes.invoke(generator, routesDir);
+   }
+
+   static String makeValidFieldKey(String... keys) throws Throwable {
+      return (String) makeValidFieldKey.invoke(keys);
+   }
+
+   /**
+    * @return scanner of lang calls in views.
+    */
+   static Object newViewScanner() throws Throwable {
+      return newScanner.invoke(new String[] {"{{__(", "@lang("}, new String[] {")}}", ")"});
+   }
+
+   static Object newSourceFile() throws Throwable {
+      return newSourceFile.invoke();
+   }
+
+   static void load(Object sourceFile, File file) throws Throwable {
+      load.invoke(sourceFile, file);
+   }
+
+   static Object newKeyBuffer() throws Throwable {
+      return newKeyBuffer.invoke();
+   }
+
+   /**
+    * @return number of replaced lang calls, replacements are only recorded in the source file.
+    */
+   static int replaceAndCollect(Object scanner, Object sourceFile, Object keyBuffer) throws Throwable {
+      return (int) replaceAndCollect.invoke(scanner, "bench", sourceFile, true, keyBuffer, new ArrayList<String>());
+   }
+
+   private static MethodHandle constructor(Class<?> clazz, Class<?>... paramTypes) throws Exception {
+      Constructor<?> constructor = clazz.getDeclaredConstructor(paramTypes);
+      constructor.setAccessible(true);
+      return MethodHandles.lookup().unreflectConstructor(constructor);
+   }
+
+   private static MethodHandle method(Class<?> clazz, String name, Class<?>... paramTypes) throws Exception {
+      Method method = clazz.getDeclaredMethod(name, paramTypes);
+      method.setAccessible(true);
+      return MethodHandles.lookup().unreflect(method);
+   }
+}
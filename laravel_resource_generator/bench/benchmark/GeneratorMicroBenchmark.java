@@ -0,0 +1,147 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of hot parts of `GenerateResource`: scanning lang calls in a view, lexing a lang file,
+ * making field keys and extracting routes. Inputs are written once per trial into a temporary folder,
+ * so file reads hit page cache and mostly parsing is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorMicroBenchmark {
+   @State(Scope.Thread)
+   public static class ViewState {
+      @Param({"8", "64"})
+      public int langCallsPerFile;
+
+      Object scanner;
+      Object sourceFile;
+      File viewFile;
+      File rootDir;
+
+      @Setup(Level.Trial)
+      public void setup() throws Throwable {
+         rootDir = LaravelCorpus.createTempDir("view-bench");
+         viewFile = write(rootDir, "view.blade.php", LaravelCorpus.view(1, langCallsPerFile, 1000));
+         scanner = GeneratorBridge.newViewScanner();
+         sourceFile = GeneratorBridge.newSourceFile();
+      }
+
+      @TearDown(Level.Trial)
+      public void tearDown() {
+         LaravelCorpus.deleteRecursively(rootDir);
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class LangFileState {
+      @Param({"1000", "20000"})
+      public int entriesPerLangFile;
+
+      Object generator;
+      File langFile;
+      File rootDir;
+
+      @Setup(Level.Trial)
+      public void setup() throws Throwable {
+         rootDir = LaravelCorpus.createTempDir("lang-bench");
+         langFile = write(rootDir, "com.php", LaravelCorpus.langFile(entriesPerLangFile));
+         generator = GeneratorBridge.newGenerator(rootDir, "cache:false");
+      }
+
+      @TearDown(Level.Trial)
+      public void tearDown() {
+         LaravelCorpus.deleteRecursively(rootDir);
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class RouteState {
+      @Param({"10", "200"})
+      public int routeGroupCount;
+
+      Object generator;
+      File routesDir;
+      File rootDir;
+
+      @Setup(Level.Trial)
+      public void setup() throws Throwable {
+         rootDir = LaravelCorpus.createTempDir("route-bench");
+         routesDir = new File(rootDir, "routes");
+         write(routesDir, "web.php", LaravelCorpus.routeFile(routeGroupCount, 10));
+         generator = GeneratorBridge.newGenerator(rootDir, "cache:false");
+      }
+
+      @TearDown(Level.Trial)
+      public void tearDown() {
+         LaravelCorpus.deleteRecursively(rootDir);
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class FieldKeyState {
+      // Non-final fields, so the JIT can not fold inputs as constants
+      String prefix = "admin/{locale}";
+      String suffix = "users/{id}/edit-profile";
+   }
+
+   /**
+    * Load a view and collect/replace its lang calls (replacements are recorded, not written).
+    */
+   @Benchmark
+   public int replaceAndCollect(ViewState state) throws Throwable {
+      GeneratorBridge.load(state.sourceFile, state.viewFile);
+      return GeneratorBridge.replaceAndCollect(state.scanner, state.sourceFile, GeneratorBridge.newKeyBuffer());
+   }
+
+   @Benchmark
+   public Map<String, String> collectLangKeyValues(LangFileState state) throws Throwable {
+      return GeneratorBridge.collectLangKeyValues(state.generator, state.langFile);
+   }
+
+   @Benchmark
+   public String makeValidFieldKey(FieldKeyState state) throws Throwable {
+      return GeneratorBridge.makeValidFieldKey(state.prefix, state.suffix);
+   }
+
+   @Benchmark
+   public Map<String, String> collectWebRoutes(RouteState state) throws Throwable {
+      return GeneratorBridge.collectWebRoutes(state.generator, state.routesDir);
+   }
+
+   private static File write(File dir, String fileName, String content) throws IOException {
+      File file = new File(dir, fileName);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      return file;
+   }
+
+   public static void main(String[] args) throws Exception {
+      new Runner(new OptionsBuilder().include(GeneratorMicroBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regression benchmark of a whole run of `GenerateResource` over synthetic projects of increasing size.
+ * Time per file (total time / `files` counter) should stay about same for all sizes,
+ * since collected lang keys are only appended while scanning and grouped once at the end.
+ * Since a run rewrites lang calls in place, each invocation runs on a new project.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class LangCollectBenchmark {
+   @Param({"1000", "10000", "50000"})
+   public int fileCount;
+
+   @Param({"8"})
+   public int langCallsPerFile;
+
+   @Param({"false", "true"})
+   public boolean parallel;
+
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   @State(Scope.Thread)
+   public static class Counters {
+      public long files;
+   }
+
+   private File rootDir;
+
+   @Setup(Level.Invocation)
+   public void setup() throws Exception {
+      rootDir = LaravelCorpus.createTempDir("lang-collect-bench");
+      LaravelCorpus.writeProject(rootDir, fileCount, langCallsPerFile);
+   }
+
+   @TearDown(Level.Invocation)
+   public void tearDown() {
+      LaravelCorpus.deleteRecursively(rootDir);
+   }
+
+   @Benchmark
+   public void generate(Counters counters) throws Throwable {
+      GeneratorBridge.generate(rootDir, "parallel:" + parallel);
+
+      counters.files += fileCount;
+   }
+
+   public static void main(String[] args) throws Exception {
+      new Runner(new OptionsBuilder().include(LangCollectBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,222 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Generates a synthetic Laravel project which is used as input of benchmarks:
+ * route files, lang files, views and controllers which contain lang calls.
+ * Content is deterministic for same shape.
+ */
+public class LaravelCorpus {
+   // Views and controllers are spread over folders which contain at most this number of files
+   private static final int FILES_PER_DIR = 100;
+
+   /**
+    * Scale of generated project.
+    */
+   static class Shape {
+      int viewCount = 750;
+      int controllerCount = 250;
+      // Keys are reused between files, so number of distinct keys grows with number of files
+      int langCallsPerFile = 8;
+      // Groups of routes in routes/web.php, every second group has a nested `Route::prefix()->group()`
+      int routeGroupCount = 1;
+      int routesPerGroup = 2;
+      // Lang files in resources/lang/vi, lang calls use keys of first 3 files
+      int langFileCount = 1;
+      int entriesPerLangFile = 2;
+
+      int fileCount() {
+         return viewCount + controllerCount;
+      }
+
+      /**
+       * @return number of distinct keys which lang calls use. Keys like `com.key12` whose number is less than
+       *         `entriesPerLangFile` already exist in lang files, others are added by a run.
+       */
+      int keySpace() {
+         return Math.max(1, fileCount() * langCallsPerFile / 2);
+      }
+
+      @Override
+      public String toString() {
+         return "views=" + viewCount + ", controllers=" + controllerCount + ", langCallsPerFile=" + langCallsPerFile
+            + ", routeGroups=" + routeGroupCount + ", routesPerGroup=" + routesPerGroup
+            + ", langFiles=" + langFileCount + ", entriesPerLangFile=" + entriesPerLangFile;
+      }
+   }
+
+   /**
+    * @param fileCount number of views and controllers, 3/4 of them are views.
+    * @param langCallsPerFile number of lang calls in each file.
+    */
+   static void writeProject(File rootDir, int fileCount, int langCallsPerFile) throws IOException {
+      Shape shape = new Shape();
+      shape.viewCount = fileCount * 3 / 4;
+      shape.controllerCount = fileCount - shape.viewCount;
+      shape.langCallsPerFile = langCallsPerFile;
+
+      writeProject(rootDir, shape);
+   }
+
+   static void writeProject(File rootDir, Shape shape) throws IOException {
+      write(new File(rootDir, "routes/web.php"), routeFile(shape.routeGroupCount, shape.routesPerGroup));
+
+      for (int langIndex = 0; langIndex < shape.langFileCount; ++langIndex) {
+         write(new File(rootDir, "resources/lang/vi/" + langFileName(langIndex) + ".php"),
+            langFile(shape.entriesPerLangFile));
+      }
+
+      new File(rootDir, "app/Http/Constants").mkdirs();
+
+      for (int fileIndex = 0, fileCount = shape.fileCount(); fileIndex < fileCount; ++fileIndex) {
+         boolean isView = fileIndex < shape.viewCount;
+         int dirIndex = fileIndex / FILES_PER_DIR;
+
+         if (isView) {
+            write(new File(rootDir, "resources/views/dir" + dirIndex + "/view" + fileIndex + ".blade.php"),
+               view(fileIndex, shape.langCallsPerFile, shape.keySpace()));
+         }
+         else {
+            write(new File(rootDir, "app/Http/Controllers/Dir" + dirIndex + "/Controller" + fileIndex + ".php"),
+               controller(fileIndex, shape.langCallsPerFile, shape.keySpace()));
+         }
+      }
+   }
+
+   /**
+    * @return blade view which contains given number of lang calls, both `{{__('...')}}` and `@lang("...")`.
+    */
+   static String view(int fileIndex, int langCallsPerFile, int keySpace) {
+      StringBuilder sb = new StringBuilder(128 * langCallsPerFile);
+
+      for (int callIndex = 0; callIndex < langCallsPerFile; ++callIndex) {
+         String key = langKey(fileIndex, callIndex, langCallsPerFile, keySpace);
+
+         sb.append("<div class=\"row\">\n   <p>").append(callIndex % 2 == 0 ? "{{__('" + key + "')}}" : "@lang(\"" + key + "\")")
+            .append("</p>\n   <span>{{ $item->name }}</span>\n</div>\n");
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * @return controller which contains given number of lang calls `__('...')`.
+    */
+   static String controller(int fileIndex, int langCallsPerFile, int keySpace) {
+      StringBuilder sb = new StringBuilder(64 * langCallsPerFile + 256);
+
+      sb.append("<?php\n\nnamespace App\\Http\\Controllers;\n\nuse Illuminate\\Http\\Request;\n\n")
+         .append("class Controller").append(fileIndex).append(" {\n   public function index() {\n");
+
+      for (int callIndex = 0; callIndex < langCallsPerFile; ++callIndex) {
+         sb.append("      $messages[] = __('").append(langKey(fileIndex, callIndex, langCallsPerFile, keySpace)).append("');\n");
+      }
+
+      sb.append("      return view('home.index', compact('messages'));\n   }\n}\n");
+
+      return sb.toString();
+   }
+
+   /**
+    * @return lang file which returns given number of entries, like `'key12' => 'Nội dung 12'`.
+    */
+   static String langFile(int entryCount) {
+      StringBuilder sb = new StringBuilder(48 * entryCount + 32);
+      sb.append("<?php\n\nreturn [\n");
+
+      for (int index = 0; index < entryCount; ++index) {
+         if (index % 2 == 0) {
+            sb.append("   'key").append(index).append("' => 'Nội dung ").append(index).append("',\n");
+         }
+         else {
+            sb.append("   \"key").append(index).append("\" => \"Nội dung \\\"").append(index).append("\\\"\",\n");
+         }
+      }
+
+      sb.append("];\n");
+
+      return sb.toString();
+   }
+
+   /**
+    * @return route file which has given number of groups, every second group has a nested group.
+    */
+   static String routeFile(int groupCount, int routesPerGroup) {
+      StringBuilder sb = new StringBuilder(96 * groupCount * routesPerGroup + 32);
+      sb.append("<?php\n\nuse Illuminate\\Support\\Facades\\Route;\n\n");
+
+      for (int groupIndex = 0; groupIndex < groupCount; ++groupIndex) {
+         sb.append("Route::group(['prefix' => '/group").append(groupIndex).append("/', \"middleware\" => []], function() {\n");
+
+         for (int routeIndex = 0; routeIndex < routesPerGroup; ++routeIndex) {
+            appendRoute(sb, "   ", routeIndex);
+         }
+
+         if (groupIndex % 2 == 1) {
+            sb.append("   Route::prefix('nested')->name('nested.')->group(function () {\n");
+
+            for (int routeIndex = 0; routeIndex < routesPerGroup; ++routeIndex) {
+               appendRoute(sb, "      ", routeIndex);
+            }
+
+            sb.append("   });\n");
+         }
+
+         sb.append("});\n");
+      }
+
+      return sb.toString();
+   }
+
+   private static void appendRoute(StringBuilder sb, String indent, int routeIndex) {
+      switch (routeIndex % 3) {
+         case 0: {
+            sb.append(indent).append("Route::get('/items").append(routeIndex).append("/{id}/edit', 'ItemController@edit');\n");
+            break;
+         }
+         case 1: {
+            sb.append(indent).append("Route::post('/items").append(routeIndex).append("/store', [ItemController::class, 'store'])->name('store");
+            sb.append(routeIndex).append("');\n");
+            break;
+         }
+         default: {
+            sb.append(indent).append("Route::match(['get', 'post'],\n").append(indent).append("   '/files").append(routeIndex)
+               .append("',\n").append(indent).append("   'FileController@index');\n");
+         }
+      }
+   }
+
+   private static String langKey(int fileIndex, int callIndex, int langCallsPerFile, int keySpace) {
+      int keyIndex = (fileIndex * langCallsPerFile + callIndex * 7) % keySpace;
+      return langFileName(keyIndex % 3) + ".key" + keyIndex / 3;
+   }
+
+   private static String langFileName(int index) {
+      return index == 0 ? "com" : index == 1 ? "msg" : index == 2 ? "err" : "lang" + index;
+   }
+
+   private static void write(File file, String content) throws IOException {
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+   }
+
+   static File createTempDir(String prefix) throws IOException {
+      return Files.createTempDirectory(prefix).toFile();
+   }
+
+   static void deleteRecursively(File file) {
+      File[] children = file.listFiles();
+
+      if (children != null) {
+         for (File child : children) {
+            deleteRecursively(child);
+         }
+      }
+
+      file.delete();
+   }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks routes which are collected from a `routes/` folder with `web.php` and `api.php` which define same group:
+ * routes of api.php must be under `api/`, so their keys do not collide with web routes, and console.php is skipped.
+ * <pre>{@code
+ *    java -cp ... benchmark.RouteFilesCheck
+ * }</pre>
+ */
+public class RouteFilesCheck {
+   public static void main(String... args) throws Throwable {
+      File rootDir = LaravelCorpus.createTempDir("route-files-check");
+
+      try {
+         File routesDir = new File(rootDir, "routes");
+         String group = "Route::group(['prefix' => '/v1/'], function() {\n   Route::get('/users/{id}', 'UserController@show');\n});\n";
+
+         write(routesDir, "web.php", "<?php\n\n" + group);
+         write(routesDir, "api.php", "<?php\n\n" + group + "Route::get('/ping', 'PingController@index');\n");
+         write(routesDir, "console.php", "<?php\n\n" + group.replace("v1", "console"));
+
+         Map<String, String> expected = new TreeMap<>();
+         expected.put(GeneratorBridge.makeValidFieldKey("v1", "users/id"), "v1/users/{id}");
+         expected.put(GeneratorBridge.makeValidFieldKey("api/v1", "users/id"), "api/v1/users/{id}");
+         expected.put(GeneratorBridge.makeValidFieldKey("api", "ping"), "api/ping");
+
+         Object generator = GeneratorBridge.newGenerator(rootDir, "cache:false");
+         Map<String, String> actual = GeneratorBridge.collectWebRoutes(generator, routesDir);
+
+         if (!expected.equals(actual)) {
+            System.out.println("Failed: expected routes " + expected + ", but got " + actual);
+            System.exit(-1);
+         }
+
+         System.out.println("Passed: collected routes " + actual);
+      }
+      finally {
+         LaravelCorpus.deleteRecursively(rootDir);
+      }
+   }
+
+   private static void write(File dir, String fileName, String content) throws Exception {
+      dir.mkdirs();
+      Files.write(new File(dir, fileName).toPath(), content.getBytes(StandardCharsets.UTF_8));
+   }
+}
@@ -0,0 +1,135 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes generated content to a file only when it differs from content of the file on disk,
+ * so unchanged outputs keep their mtime and do not trigger opcache invalidation, file watchers or rebuilds.
+ * <pre>{@code
+ *    StringBuilder sb = writer.begin();
+ *    sb.append(...);
+ *    boolean written = writer.commit(file);
+ * }</pre>
+ *
+ * Note: this is not thread-safe since buffers are reused between calls, each thread should own one.
+ */
+class ChangedContentWriter {
+   private final StringBuilder content = new StringBuilder(8192);
+   private final byte[] readBuffer = new byte[8192];
+
+   // Rendered content is encoded into this reused buffer, then written at once
+   private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+   private ByteBuffer encoded = ByteBuffer.allocate(8192);
+
+   /**
+    * @return empty buffer which content is rendered into.
+    */
+   StringBuilder begin() {
+      content.setLength(0);
+      return content;
+   }
+
+   /**
+    * Write rendered content (as UTF-8) to the file if the file does not exist or has other content.
+    * Parent folders are created if needed.
+    *
+    * @return true if the file was written.
+    */
+   boolean commit(File file) throws IOException {
+      ByteBuffer bytes = encode();
+
+      if (hasContent(file, bytes)) {
+         return false;
+      }
+
+      File parentDir = file.getAbsoluteFile().getParentFile();
+
+      if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+         throw new IOException("Could not create folder " + parentDir.getPath());
+      }
+
+      try (FileChannel channel = FileChannel.open(file.toPath(),
+         StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+         while (bytes.hasRemaining()) {
+            channel.write(bytes);
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * @return number of UTF-8 bytes of content at last `commit()`.
+    */
+   int byteCount() {
+      return encoded.limit();
+   }
+
+   /**
+    * @return crc32 of UTF-8 bytes of content at last `commit()`, which is content of the file after it.
+    */
+   long checksum() {
+      return ScanCache.checksum(encoded.array(), encoded.limit());
+   }
+
+   /**
+    * @return UTF-8 bytes of rendered content in [0, limit) of reused buffer.
+    */
+   private ByteBuffer encode() {
+      int maxByteCount = (int) (content.length() * encoder.maxBytesPerChar());
+
+      if (encoded.capacity() < maxByteCount) {
+         encoded = ByteBuffer.allocate(Math.max(maxByteCount, encoded.capacity() << 1));
+      }
+
+      encoded.clear();
+      encoder.reset();
+      encoder.encode(CharBuffer.wrap(content), encoded, true);
+      encoder.flush(encoded);
+      encoded.flip();
+
+      return encoded;
+   }
+
+   /**
+    * Compare size first, then content chunk by chunk until first difference.
+    */
+   private boolean hasContent(File file, ByteBuffer buffer) throws IOException {
+      byte[] bytes = buffer.array();
+      int byteCount = buffer.limit();
+
+      if (!file.isFile() || file.length() != byteCount) {
+         return false;
+      }
+
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+         int offset = 0;
+         int readCount;
+
+         while ((readCount = in.read(readBuffer)) > 0) {
+            if (offset + readCount > byteCount) {
+               return false;
+            }
+            for (int index = 0; index < readCount; ++index) {
+               if (readBuffer[index] != bytes[offset + index]) {
+                  return false;
+               }
+            }
+
+            offset += readCount;
+         }
+
+         return offset == byteCount;
+      }
+   }
+}
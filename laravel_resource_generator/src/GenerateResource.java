@@ -2,9 +2,18 @@ import tool.compet.util.DkFiles;
 import tool.compet.util.DkLogs;
 import tool.compet.util.DkStrings;
 
-import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 // java GenerateResource
@@ -13,21 +22,7 @@ public class GenerateResource {
    private static final String ls2 = ls + ls;
    private static final String fs = File.separator;
 
-   private static final Pattern fieldKeyPattern = Pattern.compile("\\w+");
-
-   // Patterns to detect key inside ()
-   private static final Pattern keyPattern = Pattern.compile("['\"]\\w+\\.\\w+['\"]");
-   private static final Pattern keyPattern_langOnly = Pattern.compile("Langs::\\w+\\.\\w+");
-   private static final Pattern keyPattern_fullPath = Pattern.compile("\\\\?App\\\\Http\\\\Constants\\\\Langs::\\w+\\.\\w+");
-
-   private static final Pattern validFullPathPattern = Pattern.compile("\\\\?App\\\\Http\\\\Constants\\\\Langs::\\w+(_\\w+)+");
-   private static final Pattern validNonFullPathPattern = Pattern.compile("Langs::\\w+(_\\w+)+");
-
-   // Regular expression for detect lang patterns in Views
-   private static final Pattern[] patternForViews = new Pattern[] {
-      Pattern.compile("\\{\\{__\\([^)]+\\)}}"),
-      Pattern.compile("@lang\\([^)]+\\)"),
-   };
+   // Lang calls in Views: prefix(key)suffix
    private static final String[] prefixForViews = {
       "{{__(",
       "@lang(",
@@ -37,10 +32,7 @@ public class GenerateResource {
       ")",
    };
 
-   // Regular expression for detect pattern in Controllers
-   private static final Pattern[] patternForCons = new Pattern[] {
-      Pattern.compile("__\\([^)]+\\)"),
-   };
+   // Lang calls in Controllers: prefix(key)suffix
    private static final String[] prefixForCons = {
       "__(",
    };
@@ -48,20 +40,60 @@ public class GenerateResource {
       ")",
    };
 
+   private static final Pattern importLangsPattern = Pattern.compile("use\\s+App\\\\Http\\\\Constants\\\\Langs\\s*;.*");
+
    private final String rootPath;
    private final String outDir;
+   private final File routesDir;
+   private final File viewsDir;
+   private final File httpDir;
+   private final File viDir;
    private final String lang;
    private final boolean levelLow;
    private final boolean levelMedium;
    private final boolean levelHigh;
+   private final boolean parallel;
+   private final int threadCount;
+   private final boolean watch;
+   private final long debounceMillis;
+
+   // Extracted entries of source files at previous runs, null if disabled.
+   // In watch mode, this is also the in-memory index between regenerations, so it is never null.
+   private final ScanCache scanCache;
+   private final boolean saveScanCache;
+
+   // Each worker thread loads sources and renders outputs into its own buffers
+   private final ThreadLocal<SourceFile> sources = ThreadLocal.withInitial(SourceFile::new);
+   private final ThreadLocal<ChangedContentWriter> writers = ThreadLocal.withInitial(ChangedContentWriter::new);
+
+   private final LangCallScanner viewLangScanner = new LangCallScanner(prefixForViews, suffixForViews);
+   private final LangCallScanner httpLangScanner = new LangCallScanner(prefixForCons, suffixForCons);
+   private final PhpArrayLexer langFileLexer = new PhpArrayLexer();
+   private final RouteExtractor routeExtractor = new RouteExtractor();
 
    private GenerateResource(String[] args) {
-      rootPath = new File("").getAbsolutePath();
+      this(new File("").getAbsolutePath(), args);
+   }
+
+   /**
+    * @param rootPath root folder of Laravel project.
+    */
+   GenerateResource(String rootPath, String[] args) {
+      this.rootPath = rootPath;
       outDir = rootPath + fs + "app" + fs + "Http" + fs + "Constants";
+      routesDir = new File(rootPath + fs + "routes");
+      viewsDir = new File(rootPath + fs + "resources" + fs + "views");
+      httpDir = new File(rootPath + fs + "app" + fs + "Http");
+      viDir = new File(rootPath + fs + "resources" + fs + "lang" + fs + "vi");
 
       Map<String, String> validArgs = new HashMap<>();
       validArgs.put("lang", "vi");
       validArgs.put("level", "medium");
+      validArgs.put("parallel", "false");
+      validArgs.put("threads", "" + Runtime.getRuntime().availableProcessors());
+      validArgs.put("cache", "true");
+      validArgs.put("watch", "false");
+      validArgs.put("debounce", "300");
 
       if (args != null) {
          for (String arg : args) {
@@ -77,6 +109,15 @@ public class GenerateResource {
                DkLogs.info(this, "             Case `low`: Collects Only target langs `(key.value)` -> Add them under `resources/lang/xxx/`");
                DkLogs.info(this, "             Case `medium`: Collects target langs `(key[._]value)` -> Add them under `resources/lang/xxx/`");
                DkLogs.info(this, "             Case `high`: Collects target langs (`key[._]value`)  -> Add them under `resources/lang/xxx/`");
+               DkLogs.info(this, "parallel:xxx Where `xxx` is one of {true, false}, default is `false`.");
+               DkLogs.info(this, "             Case `true`: Scans and rewrites lang calls in each view/http file on its own worker thread.");
+               DkLogs.info(this, "threads:xxx  Number of worker threads in parallel mode, default is number of processors.");
+               DkLogs.info(this, "cache:xxx    Where `xxx` is one of {true, false}, default is `true`.");
+               DkLogs.info(this, "             Case `true`: Only files which were changed since previous run are read and parsed again.");
+               DkLogs.info(this, "watch:xxx    Where `xxx` is one of {true, false}, default is `false`.");
+               DkLogs.info(this, "             Case `true`: Keeps running after generation, and regenerates affected files when");
+               DkLogs.info(this, "             files under routes, resources/views, app/Http, resources/lang were changed.");
+               DkLogs.info(this, "debounce:xxx Milliseconds to wait for more changes before regenerating in watch mode, default is `300`.");
                System.exit(-1);
             }
 
@@ -88,14 +129,16 @@ public class GenerateResource {
       levelLow = "low".equalsIgnoreCase(validArgs.get("level"));
       levelMedium = "medium".equalsIgnoreCase(validArgs.get("level"));
       levelHigh = "high".equalsIgnoreCase(validArgs.get("level"));
+      parallel = Boolean.parseBoolean(validArgs.get("parallel"));
+      threadCount = Math.max(1, Integer.parseInt(validArgs.get("threads")));
+      watch = Boolean.parseBoolean(validArgs.get("watch"));
+      debounceMillis = Math.max(0, Long.parseLong(validArgs.get("debounce")));
+      saveScanCache = Boolean.parseBoolean(validArgs.get("cache"));
+      scanCache = saveScanCache || watch ? new ScanCache(
+         new File(rootPath + fs + "storage" + fs + "framework" + fs + "cache" + fs + "generate_resource.cache"), rootPath) : null;
    }
 
    private void start() throws Exception {
-      File routesDir = new File(rootPath + fs + "routes");
-      File viewsDir = new File(rootPath + fs + "resources" + fs + "views");
-      File httpDir = new File(rootPath + fs + "app" + fs + "Http");
-      File viDir = new File(rootPath + fs + "resources" + fs + "lang" + fs + "vi");
-
       if (viDir.exists()) {
          if (!viDir.isDirectory()) {
             DkLogs.complain(this, "Require folder [%s]", viDir.getPath());
@@ -111,25 +154,70 @@ public class GenerateResource {
          }
       }
 
-      // Generate Routes to app/Http/Constants
+      if (saveScanCache) {
+         scanCache.load();
+      }
+
+      generateRoutes();
+      generateViews();
+      generateLangs(null);
+
+      if (saveScanCache) {
+         scanCache.save();
+      }
+
+      if (watch) {
+         watch();
+      }
+   }
+
+   /**
+    * Generate Routes to app/Http/Constants
+    */
+   private void generateRoutes() throws Exception {
       DkLogs.info(this, "- Routes:");
       Map<String, String> routeEntries = collectWebRoutes(routesDir);
       generateIndexFile("Routes", routeEntries, routeEntries);
+   }
 
-      // Generate Views to app/Http/Constants
+   /**
+    * Generate Views to app/Http/Constants
+    */
+   private void generateViews() throws Exception {
       DkLogs.info(this, "- Views:");
       Map<String, String> viewEntries = collectViews(viewsDir);
       generateIndexFile("Views", viewEntries, viewEntries);
+   }
 
-      // Generate Langs to app/Http/Constants
+   /**
+    * Generate Langs to app/Http/Constants
+    *
+    * @param changedFiles view/http files to scan for lang calls, or null to scan all of them.
+    */
+   private void generateLangs(List<File> changedFiles) throws Exception {
       DkLogs.info(this, "- Langs:");
-      Map<String, Set<String>> file2key = new TreeMap<>();
+      LangKeyBuffer langKeys = new LangKeyBuffer();
 
-      // collect-from/replace-in langs in resources/views/*
-      collectAndReplaceLangEntriesInViews(viewsDir, file2key);
+      if (changedFiles == null) {
+         // collect-from/replace-in langs in resources/views/*
+         collectAndReplaceLangEntriesInViews(viewsDir, langKeys);
 
-      // collect-from/replace-in langs in app/Http/*
-      collectAndReplaceLangEntriesInHttp(httpDir, file2key);
+         // collect-from/replace-in langs in app/Http/*
+         collectAndReplaceLangEntriesInHttp(httpDir, langKeys);
+      }
+      else {
+         for (File file : changedFiles) {
+            boolean inViews = isInside(file, viewsDir);
+            LangCallScanner scanner = inViews ? viewLangScanner : httpLangScanner;
+            List<String> warnings = new ArrayList<>();
+            int replacedItemCount = replaceLangEntriesInFile(file, scanner, inViews, langKeys, warnings);
+
+            logReplacedLangEntries(file, replacedItemCount, warnings);
+         }
+      }
+
+      // group collected keys by filename, only once after all files were scanned
+      Map<String, Set<String>> file2key = langKeys.toFile2Keys();
 
       // create or update lang-entries to files in resources/lang/vi*
       Map<String, String>[] arr = createOrUpdateLangFiles(viDir, file2key);
@@ -139,46 +227,198 @@ public class GenerateResource {
       generateIndexFile("Langs", langEntries, langComments);
    }
 
+   /**
+    * Keep running and regenerate affected files when files under watched folders were changed.
+    * Events are collected until no more event comes in `debounceMillis`, so saving many files at once
+    * (for example, checkout a branch) causes only one regeneration.
+    */
+   private void watch() throws Exception {
+      File langDir = viDir.getParentFile();
+
+      try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+         Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+         for (File dir : new File[] {routesDir, viewsDir, httpDir, langDir}) {
+            registerRecursively(watchService, dir.toPath(), watchedDirs, null);
+         }
+
+         DkLogs.info(this, "- Watching for changes, press Ctrl+C to stop.");
+
+         while (true) {
+            Set<Path> changedPaths = new LinkedHashSet<>();
+            boolean overflow = false;
+            WatchKey key = watchService.take();
+
+            do {
+               Path dir = watchedDirs.get(key);
+
+               for (WatchEvent<?> event : key.pollEvents()) {
+                  if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                     overflow = true;
+                  }
+                  else if (dir != null) {
+                     Path path = dir.resolve((Path) event.context());
+                     changedPaths.add(path);
+
+                     // Files in new folder may be created before the folder is registered
+                     if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                        registerRecursively(watchService, path, watchedDirs, changedPaths);
+                     }
+                  }
+               }
+
+               if (!key.reset()) {
+                  watchedDirs.remove(key);
+               }
+
+               key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            }
+            while (key != null);
+
+            try {
+               regenerate(changedPaths, overflow);
+            }
+            catch (Exception e) {
+               // Keep watching, the file may be fixed by next change
+               e.printStackTrace();
+            }
+         }
+      }
+   }
+
+   /**
+    * Register the folder and its sub folders to the watch service.
+    *
+    * @param result_files if not null, files under the folder are added to this.
+    */
+   private static void registerRecursively(WatchService watchService, Path rootDir, Map<WatchKey, Path> watchedDirs,
+                                           Set<Path> result_files) throws IOException {
+      if (!Files.isDirectory(rootDir)) {
+         return;
+      }
+
+      Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+         @Override
+         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+               StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+            return FileVisitResult.CONTINUE;
+         }
+
+         @Override
+         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (result_files != null) {
+               result_files.add(file);
+            }
+            return FileVisitResult.CONTINUE;
+         }
+      });
+   }
+
+   /**
+    * Regenerate only files which are affected by changed paths. Unchanged source files are not read again
+    * since their entries are still in the scan cache.
+    *
+    * @param overflow true if some events were lost, then everything is regenerated.
+    */
+   private void regenerate(Set<Path> changedPaths, boolean overflow) throws Exception {
+      long startTime = System.currentTimeMillis();
+      File langDir = viDir.getParentFile();
+      File generatedDir = new File(outDir);
+
+      boolean routesChanged = overflow;
+      boolean viewsChanged = overflow;
+      boolean langsChanged = overflow;
+      List<File> changedFiles = new ArrayList<>();
+
+      for (Path path : changedPaths) {
+         File file = path.toFile();
+
+         // Our outputs are changed by ourself
+         if (isInside(file, generatedDir)) {
+            continue;
+         }
+         if (!file.exists()) {
+            scanCache.remove(file);
+         }
+
+         if (isInside(file, routesDir)) {
+            routesChanged = true;
+         }
+         else if (isInside(file, viewsDir)) {
+            viewsChanged = langsChanged = true;
+         }
+         else if (isInside(file, langDir)) {
+            langsChanged = true;
+         }
+         else if (isInside(file, httpDir)) {
+            langsChanged = true;
+         }
+         else {
+            continue;
+         }
+
+         if (file.isFile() && (isInside(file, viewsDir) || isInside(file, httpDir))) {
+            changedFiles.add(file);
+         }
+      }
+
+      if (!routesChanged && !viewsChanged && !langsChanged) {
+         return;
+      }
+
+      DkLogs.info(this, "- Changed %d paths, regenerating...", changedPaths.size());
+
+      if (routesChanged) {
+         generateRoutes();
+      }
+      if (viewsChanged) {
+         generateViews();
+      }
+      if (langsChanged) {
+         generateLangs(overflow ? null : changedFiles);
+      }
+      if (saveScanCache) {
+         scanCache.save();
+      }
+
+      DkLogs.info(this, "- Regenerated in %d ms", System.currentTimeMillis() - startTime);
+   }
+
+   private static boolean isInside(File file, File dir) {
+      return file.getAbsolutePath().startsWith(dir.getAbsolutePath() + fs);
+   }
+
    /**
     * Collect-from/replace-in langs from resources/views/*
     *
     * @param viewsDir views directory
-    * @param result_file2keys result map of filename -> set_of_lang_key, like: com -> welcome
+    * @param result_keys collected keys (filename and lang_key, like: com, welcome) are appended to this
     * @throws Exception e
     */
-   private void collectAndReplaceLangEntriesInViews(File viewsDir, Map<String, Set<String>> result_file2keys) throws Exception {
-      Map<String, Set<String>> file2keys = new TreeMap<>();
+   private void collectAndReplaceLangEntriesInViews(File viewsDir, LangKeyBuffer result_keys) throws Exception {
+      List<File> viewFiles = DkFiles.collectFilesRecursively(viewsDir);
 
-      // Collect from resources/views
-      for (File viewFile : DkFiles.collectFilesRecursively(viewsDir)) {
+      for (File viewFile : viewFiles) {
          final String filename = DkFiles.calcFileNameWithoutExtension(viewFile);;
 
          if (filename == null || filename.length() == 0) {
             DkLogs.complain(this, "Invalid filename of file [%s]", getRelativePath(viewFile));
          }
+      }
 
-         List<String> lines = DkFiles.readFileAsUtf8Lines(viewFile);
-
-         int replacedItemCount = replaceItemsAndCollectKeys(
-            getRelativePath(viewFile), lines,
-            prefixForViews, suffixForViews,
-            patternForViews, true,
-            file2keys);
-
-         if (replacedItemCount > 0) {
-            mergeEntries(result_file2keys, file2keys);
-
-            BufferedWriter writer = DkFiles.newUtf8Writer(viewFile);
-
-            for (String line : lines) {
-               writer.write(line);
-               writer.write(ls);
-            }
+      if (parallel) {
+         collectAndReplaceLangEntriesInParallel(viewFiles, true, result_keys);
+         return;
+      }
 
-            writer.close();
+      // Collect from resources/views
+      for (File viewFile : viewFiles) {
+         List<String> warnings = new ArrayList<>();
+         int replacedItemCount = replaceLangEntriesInFile(viewFile, viewLangScanner, true, result_keys, warnings);
 
-            DkLogs.info(this, "   - Replaced %d entries in [%s]", replacedItemCount, getRelativePath(viewFile));
-         }
+         logReplacedLangEntries(viewFile, replacedItemCount, warnings);
       }
    }
 
@@ -186,71 +426,206 @@ public class GenerateResource {
     * Collect-from/Replace-in langs from app/Http/*
     * 
     * @param controllersDir dir
-    * @param result_file2keys filename -> set_of_lang_key
+    * @param result_keys collected keys are appended to this
     * @throws Exception e
     */
-   private void collectAndReplaceLangEntriesInHttp(File controllersDir, Map<String, Set<String>> result_file2keys) throws Exception {
-      Map<String, Set<String>> file2keys = new TreeMap<>();
+   private void collectAndReplaceLangEntriesInHttp(File controllersDir, LangKeyBuffer result_keys) throws Exception {
+      List<File> httpFiles = DkFiles.collectFilesRecursively(controllersDir);
+
+      if (parallel) {
+         collectAndReplaceLangEntriesInParallel(httpFiles, false, result_keys);
+         return;
+      }
 
       // Collect from resources/views
-      for (File httpFile : DkFiles.collectFilesRecursively(controllersDir)) {
-         List<String> lines = DkFiles.readFileAsUtf8Lines(httpFile);
+      for (File httpFile : httpFiles) {
+         List<String> warnings = new ArrayList<>();
+         int replacedItemCount = replaceLangEntriesInFile(httpFile, httpLangScanner, false, result_keys, warnings);
+
+         logReplacedLangEntries(httpFile, replacedItemCount, warnings);
+      }
+   }
+
+   /**
+    * Parallel version of collect-from/replace-in langs. Each file is scanned and rewritten on a worker thread,
+    * and collects its keys and warnings into its own buffers. After all files were done, the buffers are appended
+    * and logged in order of files, so result (and log) is same as sequential run.
+    *
+    * @param inViews true if the files are views, otherwise files in app/Http.
+    * @param result_keys collected keys are appended to this
+    * @throws Exception e
+    */
+   private void collectAndReplaceLangEntriesInParallel(List<File> files, boolean inViews,
+                                                       LangKeyBuffer result_keys) throws Exception {
+      LangCallScanner scanner = inViews ? viewLangScanner : httpLangScanner;
+
+      List<LangKeyBuffer> keysOfFiles = new ArrayList<>(files.size());
+      List<List<String>> warningsOfFiles = new ArrayList<>(files.size());
+      List<Callable<Integer>> tasks = new ArrayList<>(files.size());
 
-         int replacedItemCount = replaceItemsAndCollectKeys(
-            getRelativePath(httpFile), lines,
-            prefixForCons, suffixForCons,
-            patternForCons, false,
-            file2keys);
+      for (File file : files) {
+         LangKeyBuffer keys = new LangKeyBuffer();
+         List<String> warnings = new ArrayList<>();
 
-         if (replacedItemCount > 0) {
-            mergeEntries(result_file2keys, file2keys);
-            tryImportLangsInController(lines);
+         keysOfFiles.add(keys);
+         warningsOfFiles.add(warnings);
+         tasks.add(() -> replaceLangEntriesInFile(file, scanner, inViews, keys, warnings));
+      }
 
-            BufferedWriter writer = DkFiles.newUtf8Writer(httpFile);
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+      try {
+         List<Future<Integer>> futures = executor.invokeAll(tasks);
 
-            for (String line : lines) {
-               writer.write(line);
-               writer.write(ls);
+         for (int index = 0, N = files.size(); index < N; ++index) {
+            int replacedItemCount = futures.get(index).get();
+
+            if (replacedItemCount > 0) {
+               result_keys.addAll(keysOfFiles.get(index));
             }
 
-            writer.close();
+            logReplacedLangEntries(files.get(index), replacedItemCount, warningsOfFiles.get(index));
+         }
+      }
+      finally {
+         executor.shutdown();
+      }
+   }
+
+   /**
+    * Log warnings which were found while scanning the file, then number of replaced lang calls in it.
+    */
+   private void logReplacedLangEntries(File file, int replacedItemCount, List<String> warnings) {
+      for (String warning : warnings) {
+         DkLogs.println("%s", warning);
+      }
 
-            DkLogs.info(this, "   - Replaced %d entries in [%s]",
-               replacedItemCount, getRelativePath(httpFile));
+      if (replacedItemCount > 0) {
+         DkLogs.info(this, "   - Replaced %d entries in [%s]", replacedItemCount, getRelativePath(file));
+      }
+   }
+
+   /**
+    * Replace lang calls in the file and collect their keys. The file is re-written only when some calls were replaced.
+    *
+    * @param inViews true if the file is a view, otherwise a file in app/Http.
+    * @param warnings messages to log are appended to this.
+    * @return number of replaced lang calls.
+    */
+   private int replaceLangEntriesInFile(File file, LangCallScanner scanner, boolean inViews,
+                                        LangKeyBuffer keys, List<String> warnings) throws Exception {
+      // Every collected call is replaced, so after this, content of the file has no key to collect.
+      // That is, cached file (not changed since previous run) can be skipped without reading it,
+      // only its warnings (invalid targets are not replaced, so they are still in it) are cached.
+      String[] cachedWarnings = scanCache == null ? null : scanCache.get(file);
+
+      if (cachedWarnings != null) {
+         warnings.addAll(Arrays.asList(cachedWarnings));
+         return 0;
+      }
+
+      SourceFile source = sources.get();
+      source.load(file);
+
+      int replacedItemCount = scanner.replaceAndCollect(getRelativePath(file), source, inViews, keys, warnings);
+
+      if (replacedItemCount > 0) {
+         if (!inViews) {
+            tryImportLangsInController(source);
          }
+
+         ChangedContentWriter writer = writers.get();
+         source.save(file, writer);
+
+         // Record the written bytes instead of reading the file again
+         if (scanCache != null) {
+            scanCache.put(file, writer.byteCount(), file.lastModified(), writer.checksum(), warnings.toArray(new String[0]));
+         }
+      }
+      else if (scanCache != null) {
+         scanCache.put(file, source.byteCount(), source.lastModified(), source.checksum(), warnings.toArray(new String[0]));
       }
+
+      return replacedItemCount;
    }
 
-   private void tryImportLangsInController(List<String> lines) {
-      int importIndex = -1;
-      int importPlacableIndex = 0;
+   /**
+    * Insert `use App\Http\Constants\Langs;` after first `use` line (or after `namespace` line) if not imported yet.
+    */
+   private void tryImportLangsInController(SourceFile source) {
+      final char[] chars = source.chars();
+      final int N = source.length();
+      int importOffset = -1;
+      int importPlacableOffset = 0;
+
+      for (int lineStart = 0; lineStart < N; ) {
+         int lineEnd = lineStart;
+
+         while (lineEnd < N && chars[lineEnd] != '\n') {
+            ++lineEnd;
+         }
+
+         int nextLineStart = Math.min(N, lineEnd + 1);
 
-      Pattern importPattern = Pattern.compile("use\\s+App\\\\Http\\\\Constants\\\\Langs\\s*;.*");
+         // Trim the line
+         int start = lineStart;
+         int end = lineEnd;
 
-      for (int index = 0, N = lines.size(); index < N; ++index) {
-         String line = lines.get(index).trim();
+         while (start < end && chars[start] <= ' ') {
+            ++start;
+         }
+         while (end > start && chars[end - 1] <= ' ') {
+            --end;
+         }
 
-         if (importPattern.matcher(line).matches()) {
+         if (startsWith(chars, start, end, "use") && importLangsPattern.matcher(CharBuffer.wrap(chars, start, end - start)).matches()) {
             return;
          }
 
-         if (line.startsWith("<?php") || line.startsWith("namespace ")) {
-            importPlacableIndex = index + 1;
+         if (startsWith(chars, start, end, "<?php") || startsWith(chars, start, end, "namespace ")) {
+            importPlacableOffset = nextLineStart;
          }
-         else if (line.startsWith("use ")) {
-            importPlacableIndex = index + 1;
+         else if (startsWith(chars, start, end, "use ")) {
+            importPlacableOffset = nextLineStart;
 
-            if (importIndex < 0) {
-               importIndex = importPlacableIndex;
+            if (importOffset < 0) {
+               importOffset = importPlacableOffset;
             }
          }
+
+         lineStart = nextLineStart;
       }
 
-      if (importIndex < 0) {
-         importIndex = importPlacableIndex;
+      if (importOffset < 0) {
+         importOffset = importPlacableOffset;
       }
 
-      lines.add(importIndex, "use App\\Http\\Constants\\Langs;");
+      // Follow line separator of the file
+      String lineSeparator = importOffset >= 2 && chars[importOffset - 2] == '\r' ? "\r\n" : ls;
+      StringBuilder sb = source.insert(importOffset);
+
+      if (importOffset == N && N > 0 && chars[N - 1] != '\n') {
+         sb.append(lineSeparator);
+      }
+
+      sb.append("use App\\Http\\Constants\\Langs;").append(lineSeparator);
+   }
+
+   /**
+    * @return true if content in [from, to) starts with the prefix.
+    */
+   private static boolean startsWith(char[] chars, int from, int to, String prefix) {
+      final int N = prefix.length();
+
+      if (to - from < N) {
+         return false;
+      }
+      for (int index = 0; index < N; ++index) {
+         if (chars[from + index] != prefix.charAt(index)) {
+            return false;
+         }
+      }
+      return true;
    }
 
    /**
@@ -273,7 +648,22 @@ public class GenerateResource {
 
       for (File langFile : DkFiles.collectFilesRecursively(viDir)) {
          String fileName = DkFiles.calcFileNameWithoutExtension(langFile);
-         Map<String, String> key2value = collectLangKeyValues(langFile);
+         Map<String, String> key2value = new TreeMap<>();
+         String[] cachedEntries = scanCache == null ? null : scanCache.get(langFile);
+
+         if (cachedEntries != null) {
+            putPairs(cachedEntries, key2value);
+         }
+         else {
+            long lastModified = langFile.lastModified();
+            byte[] content = Files.readAllBytes(langFile.toPath());
+            key2value = collectLangKeyValues(langFile, new String(content, StandardCharsets.UTF_8));
+
+            if (scanCache != null) {
+               scanCache.put(langFile, content.length, lastModified, ScanCache.checksum(content, content.length),
+                  toPairs(key2value));
+            }
+         }
 
          file2content.computeIfAbsent(fileName, k -> new TreeMap<>()).putAll(key2value);
       }
@@ -293,30 +683,36 @@ public class GenerateResource {
          if (newFilecontent.size() > 0) {
             File updateFile = new File(viDir, filename + ".php");
 
-            if (!updateFile.exists() || !updateFile.isFile()) {
-               if (updateFile.createNewFile()) {
-                  DkLogs.info(this, "   - Created new file [%s]", getRelativePath(updateFile));
-               }
-               else {
-                  DkLogs.complain(this, "Could not create file [%s]", getRelativePath(updateFile));
-               }
+            boolean isNewFile = !updateFile.exists();
+            String content = isNewFile ? "<?php\n\nreturn [\n];\n" : readUtf8(updateFile);
+
+            if (!langFileLexer.lex(content)) {
+               DkLogs.println("   - [WARN] Could not parse returned array of [%s], skipped adding new %d entries.",
+                  getRelativePath(updateFile), newFilecontent.size());
+               continue;
             }
 
-            BufferedWriter writer = DkFiles.newUtf8Writer(updateFile);
+            // Insert new entries at top of returned array, other content of the file is kept as is
+            ChangedContentWriter writer = writers.get();
+            StringBuilder sb = writer.begin();
+            int insertIndex = langFileLexer.arrayStart();
 
-            writer.write("<?php\n\n");
-            writer.write("return [\n");
+            sb.append(content, 0, insertIndex);
 
             for (String langkey : newFilecontent.keySet()) {
-               writer.write(DkStrings.format("   \"%s\" => \"Please translate: %s\",\n", langkey, newFilecontent.get(langkey)));
-            }
-            writer.write(ls);
-            for (String langkey : filecontent.keySet()) {
-               writer.write(DkStrings.format("   \"%s\" => \"%s\",\n", langkey, filecontent.get(langkey)));
+               sb.append(ls).append("   \"").append(langkey).append("\" => \"Please translate: ").append(newFilecontent.get(langkey)).append("\",");
             }
 
-            writer.write("];\n");
-            writer.close();
+            sb.append(content, insertIndex, content.length());
+
+            if (writer.commit(updateFile)) {
+               if (scanCache != null) {
+                  scanCache.remove(updateFile);
+               }
+               if (isNewFile) {
+                  DkLogs.info(this, "   - Created new file [%s]", getRelativePath(updateFile));
+               }
+            }
 
             filecontent.putAll(newFilecontent);
 
@@ -347,170 +743,59 @@ public class GenerateResource {
     */
    private void generateIndexFile(String type, Map<String, String> entries, Map<String, String> comments) throws Exception {
       File outFile = new File(outDir + fs + type + ".php");
+      ChangedContentWriter writer = writers.get();
+      StringBuilder sb = writer.begin();
 
-      if (!outFile.exists() && outFile.getParentFile().mkdirs() && !outFile.createNewFile()) {
-         DkLogs.complain(this, "Could not create output [%s]", outFile.getPath());
-      }
-
-      BufferedWriter bw = DkFiles.newUtf8Writer(outFile);
-
-      bw.write("<?php\n\n");
-      bw.write("namespace App\\Http\\Constants;\n\n");
-      bw.write("// This class is auto-generated by GenerateResouce. Don't modify it !\n");
-      bw.write(DkStrings.format("class %s {\n", type));
+      sb.append("<?php\n\n");
+      sb.append("namespace App\\Http\\Constants;\n\n");
+      sb.append("// This class is auto-generated by GenerateResouce. Don't modify it !\n");
+      sb.append("class ").append(type).append(" {\n");
 
       for (String key : entries.keySet()) {
-         bw.write(DkStrings.format("   /** %s */\n", comments.get(key)));
-         bw.write(DkStrings.format("   const %s = '%s';\n", key, entries.get(key)));
+         sb.append("   /** ").append(comments.get(key)).append(" */\n");
+         sb.append("   const ").append(key).append(" = '").append(entries.get(key)).append("';\n");
       }
 
-      bw.write("}\n");
-      bw.close();
-
-      DkLogs.info(this, "   - Generated %d entries in [%s]", entries.size(), getRelativePath(outFile));
-   }
-
-   /**
-    * Replace target items and collect lang keys from a file (lines).
-    *
-    * @param requestFullPath true if replacement is full path to lang key, otherwise Langs::key is used.
-    */
-   private int replaceItemsAndCollectKeys(String filePath, List<String> lines,
-                                          String[] prefixes, String[] suffixes,
-                                          Pattern[] patterns, boolean requestFullPath,
-                                          Map<String, Set<String>> result_file2keys) {
-      int replacedItemCount = 0;
-
-      for (int lineIndex = 0, lineCount = lines.size(); lineIndex < lineCount; ++lineIndex) {
-         String line = lines.get(lineIndex);
-
-         for (int index = 0; index < patterns.length; ++index) {
-            final String prefix = prefixes[index];
-            final int prefixLength = prefix.length();
-            final Pattern pattern = patterns[index];
-
-            // Loop until this line does not match with this pattern
-            int searchFromIndex = 0;
-
-            while (searchFromIndex < line.length()) {
-               int startIndex = line.indexOf(prefix, searchFromIndex);
-
-               if (startIndex < 0) {
-                  break;
-               }
-
-               searchFromIndex = startIndex + prefixLength;
-               final String suffix = suffixes[index];
-               int endIndex = line.indexOf(suffix, startIndex);
-
-               if (endIndex > startIndex) {
-                  // target is prefix(any_string_which_dost_not_contain_close_bracket)suffix
-                  final String target = line.substring(startIndex, endIndex + suffix.length());
-
-                  if (pattern.matcher(target).matches()) {
-                     // Calculate key
-                     // first, we touch to key from target by focus on string inside ()
-                     startIndex += prefixLength;
-                     String key = line.substring(startIndex, endIndex);
-                     // second, check the touched key
-                     if (keyPattern.matcher(key).matches()) {
-                        key = DkStrings.trim(key, '"', '\'').trim();
-                     }
-                     else if (keyPattern_fullPath.matcher(key).matches() || keyPattern_langOnly.matcher(key).matches()) {
-                        key = key.split("::")[1].trim();
-                     }
-                     else {
-                        if (! validFullPathPattern.matcher(key).matches() && ! validNonFullPathPattern.matcher(key).matches()) {
-                           DkLogs.println("   - [WARN] Inspected invalid target [%s] in [%s].",
-                              target, filePath);
-                        }
-                        continue;
-                     }
-
-                     final int dotIndex = key.indexOf('.');
-
-                     // we don't need make valid field key here since it was sastified before.
-                     String fileKey = key.substring(0, dotIndex).trim();
-                     String langKey = key.substring(dotIndex + 1).trim();
-
-                     // collect key of file and lang
-                     addToMap(result_file2keys, fileKey, langKey);
-
-                     StringBuilder lineBuilder = new StringBuilder(line);
-                     lineBuilder.replace(startIndex, endIndex, calcLangReferencePlacement(key, requestFullPath));
-                     line = lineBuilder.toString();
-
-                     ++replacedItemCount;
-                  }
-               }
-            }
-         }
-
-         lines.set(lineIndex, line);
-      }
-
-      return replacedItemCount;
-   }
+      sb.append("}\n");
 
-   private void mergeEntries(Map<String, Set<String>> original, Map<String, Set<String>> extras) {
-      for (String key : extras.keySet()) {
-         original.computeIfAbsent(key, k -> new HashSet<>()).addAll(extras.get(key));
+      if (writer.commit(outFile)) {
+         DkLogs.info(this, "   - Generated %d entries in [%s]", entries.size(), getRelativePath(outFile));
       }
-   }
-
-   /**
-    * @param key com.welcome
-    * @param requestFullPath true if caller need full path to /Langs, otherwise only key is returned.
-    * @return App\Http\Constants\Langs::com_welcome
-    */
-   private String calcLangReferencePlacement(String key, boolean requestFullPath) {
-      if (requestFullPath) {
-         return DkStrings.format("\\App\\Http\\Constants\\Langs::%s", makeValidFieldKey(key));
+      else {
+         DkLogs.info(this, "   - Unchanged %d entries in [%s]", entries.size(), getRelativePath(outFile));
       }
-      return DkStrings.format("Langs::%s", makeValidFieldKey(key));
-   }
-
-   private void addToMap(Map<String, Set<String>> map, String key, String value) {
-      map.computeIfAbsent(key, k -> new HashSet<>()).add(value);
    }
 
    /**
-    * @param langFile file of lang
-    * @return map of langkey -> its content, like: welcome -> Welcome to App
+    * @param langFile file of lang, only for logging
+    * @param content content of the file
+    * @return map of langkey -> its content, like: welcome -> Welcome to App, errors.required -> Required
     * @throws Exception e
     */
-   private Map<String, String> collectLangKeyValues(File langFile) throws Exception {
+   private Map<String, String> collectLangKeyValues(File langFile, String content) throws Exception {
       Map<String, String> key2value = new TreeMap<>();
-      List<String> lines = DkFiles.readFileAsUtf8Lines(langFile);
-
-      for (String line : lines) {
-         String[] arr = line.split("=>");
 
-         if (arr.length == 2) {
-            String langKey = arr[0].trim(); // "msg_test"
-            String langValue = arr[1].trim(); // "this is test ' msg" ,
-
-            // Only collect valid keys
-            if (langKey.length() > 2 && langValue.length() > 2) {
-               if (isDash(langKey.charAt(0)) && isDash(langKey.charAt(langKey.length() - 1)) && isDash(langValue.charAt(0))) {
-                  String k = langKey.substring(1, langKey.length() - 1);
+      // Entries which were lexed before an error are still collected
+      if (!langFileLexer.lex(content)) {
+         DkLogs.println("   - [WARN] Could not parse returned array of [%s] to the end.", getRelativePath(langFile));
+      }
 
-                  if (isValidFieldKey(k)) {
-                     int dashIndex = Math.max(langValue.lastIndexOf('\''), langValue.lastIndexOf('"'));
+      for (int index = 0, N = langFileLexer.entryCount(); index < N; ++index) {
+         String langKey = langFileLexer.key(index);
 
-                     if (dashIndex > 0) {
-                        String v = langValue.substring(1, dashIndex);
-                        key2value.put(k, v);
-                     }
-                  }
-               }
-            }
+         // Only collect valid keys
+         if (isValidLangKey(langKey)) {
+            key2value.put(langKey, langFileLexer.value(index));
          }
       }
 
       return key2value;
    }
 
+   private static String readUtf8(File file) throws IOException {
+      return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+   }
+
    private TreeMap<String, String> collectViews(File viewsDir) throws Exception {
       TreeMap<String, String> result = new TreeMap<>();
       File[] layoutDirs = viewsDir.listFiles();
@@ -540,139 +825,182 @@ public class GenerateResource {
       return result;
    }
 
+   /**
+    * Collect routes from all files under routes/*, except console.php and channels.php which define no http route.
+    * Routes of api.php are under `api/` prefix, like RouteServiceProvider of Laravel mounts them.
+    */
    private TreeMap<String, String> collectWebRoutes(File routesDir) throws Exception {
       TreeMap<String, String> result = new TreeMap<>();
-      File webRouteFile = new File(routesDir, "web.php");
 
-      if (webRouteFile.exists()) {
-         List<String> lines = DkFiles.readFileAsUtf8Lines(webRouteFile);
+      for (File routeFile : DkFiles.collectFilesRecursively(routesDir)) {
+         String fileName = routeFile.getName();
+         boolean topLevel = routesDir.equals(routeFile.getParentFile());
+
+         if (!fileName.endsWith(".php") || (topLevel && ("console.php".equals(fileName) || "channels.php".equals(fileName)))) {
+            continue;
+         }
 
-         for (int lineIndex = 0, lineCount = lines.size(); lineIndex < lineCount; ++lineIndex) {
-            String line = lines.get(lineIndex).trim();
+         String[] cachedEntries = scanCache == null ? null : scanCache.get(routeFile);
 
-            // Only parse routes in a group
-            if (line.startsWith("Route::group")) {
-               final String prefix = parseGroupPrefix(line);
+         if (cachedEntries != null) {
+            putPairs(cachedEntries, result);
+            continue;
+         }
 
-               if (prefix == null) {
-                  continue;
-               }
+         Map<String, String> fileResult = new TreeMap<>();
+         List<String> routes = new ArrayList<>();
+         long lastModified = routeFile.lastModified();
+         byte[] content = Files.readAllBytes(routeFile.toPath());
 
-               ++lineIndex;
+         routeExtractor.extract(new String(content, StandardCharsets.UTF_8),
+            topLevel && "api.php".equals(fileName) ? "api" : "", routes);
 
-               for (; lineIndex < lineCount; ++lineIndex) {
-                  line = lines.get(lineIndex).trim();
+         for (int index = 0, N = routes.size(); index < N; index += 2) {
+            String prefix = routes.get(index);
+            String suffix = routes.get(index + 1);
 
-                  if (line.startsWith("});")) {
-                     break;
-                  }
-                  if (line.startsWith("Route::")) {
-                     final String suffix = parseSuffix(line);
+            String key = makeValidFieldKey(removeBraces(prefix), removeBraces(suffix));
+            String value = DkStrings.trim(prefix + "/" + suffix, '/').trim();
 
-                     if (suffix != null) {
-                        String prefixOfKey = prefix.replaceAll("[{}]", "");
-                        String suffixOfKey = suffix.replaceAll("[{}]", "");
-                        
-                        String key = makeValidFieldKey(prefixOfKey, suffixOfKey);
-                        String value = DkStrings.trim(prefix + "/" + suffix, '/').trim();
+            fileResult.put(key, value);
+         }
 
-                        result.put(key, value);
-                     }
-                  }
-               }
-            }
+         result.putAll(fileResult);
+
+         if (scanCache != null) {
+            scanCache.put(routeFile, content.length, lastModified, ScanCache.checksum(content, content.length),
+               toPairs(fileResult));
          }
       }
 
       return result;
    }
 
-   // line = Route::group(['prefix' => '/xxx/yyy/', "middleware" => []], function() {
-   private String parseGroupPrefix(String line) {
-      final int N = line.length();
-      int startIndex = line.indexOf("prefix");
-
-      if (startIndex < 0) {
-         return null;
+   /**
+    * @return the url without `{` and `}`, like: users/id/edit for users/{id}/edit
+    */
+   private static String removeBraces(String url) {
+      if (url.indexOf('{') < 0 && url.indexOf('}') < 0) {
+         return url;
       }
 
-      int dashSymbolCount = 0;
-      int endIndex = -1;
+      StringBuilder sb = new StringBuilder(url.length());
 
-      for (int index = startIndex; index < N; ++index) {
-         char ch = line.charAt(index);
+      for (int index = 0, N = url.length(); index < N; ++index) {
+         char ch = url.charAt(index);
 
-         if (ch == '\'' || ch == '"') {
-            if (++dashSymbolCount == 3) {
-               endIndex = index;
-               break;
-            }
+         if (ch != '{' && ch != '}') {
+            sb.append(ch);
          }
       }
 
-      if (startIndex < endIndex) {
-         String target = line.substring(startIndex, endIndex);
+      return sb.toString();
+   }
 
-         if (Pattern.compile("prefix[\"']\\s*=>\\s*[\"'][\\w/]+").matcher(target).matches()) {
-            String[] arr = target.split("=>");
-            String url = arr[1].trim().substring(1);
+   /**
+    * @return flatten key-value pairs of the map, like: [key1, value1, key2, value2...]
+    */
+   private static String[] toPairs(Map<String, String> map) {
+      String[] pairs = new String[map.size() << 1];
+      int index = 0;
 
-            return DkStrings.trim(url, '/');
-         }
+      for (Map.Entry<String, String> entry : map.entrySet()) {
+         pairs[index++] = entry.getKey();
+         pairs[index++] = entry.getValue();
       }
 
-      return null;
+      return pairs;
    }
 
-   // line = Route::match(['get', 'post'], '/xxx/yyy', 'UserController@responseFile');
-   // line = Route::post('/xxx/yyy', 'UserController@getUserDetail');
-   // line = Route::get('/xxx/{id}/yyy', 'FileController@download');
-   private String parseSuffix(String line) {
-      String target = line.substring(line.indexOf("(") + 1, line.indexOf(")"));
-      String[] arr = target.split(",");
-
-      if (arr.length > 0) {
-         for (String elem : arr) {
-            if (elem.contains("/")) {
-               String suffix = elem.trim();
-               suffix = suffix.substring(2, Math.max(2, suffix.length() - 1)).trim();
-
-               return DkStrings.trim(suffix, '/');
-            }
-         }
+   private static void putPairs(String[] pairs, Map<String, String> map) {
+      for (int index = 0; index < pairs.length; index += 2) {
+         map.put(pairs[index], pairs[index + 1]);
       }
-
-      return null;
    }
 
+   /**
+    * Join the keys by `_`, where each non-word char (not in [a-zA-Z0-9_]) is replaced with `_`,
+    * and leading/trailing `_` of each key and of result are removed. For example: admin, users/id/edit -> admin_users_id_edit
+    */
    private static String makeValidFieldKey(String... keys) {
       StringBuilder sb = new StringBuilder();
 
       for (int i = 0, lastIndex = keys.length - 1; i <= lastIndex; ++i) {
-         sb.append(DkStrings.trim(keys[i].replaceAll("\\W", "_"), '_'));
-         
+         String key = keys[i];
+         int start = sb.length();
+
+         for (int index = 0, N = key.length(); index < N; ++index) {
+            char ch = key.charAt(index);
+
+            if (!isWordChar(ch)) {
+               // Surrogate pair is one char
+               if (Character.isHighSurrogate(ch) && index + 1 < N && Character.isLowSurrogate(key.charAt(index + 1))) {
+                  ++index;
+               }
+               ch = '_';
+            }
+
+            // Leading `_` of the key is removed
+            if (ch != '_' || sb.length() > start) {
+               sb.append(ch);
+            }
+         }
+
+         // Trailing `_` of the key is removed
+         int end = sb.length();
+
+         while (end > start && sb.charAt(end - 1) == '_') {
+            --end;
+         }
+         sb.setLength(end);
+
          if (i < lastIndex) {
             sb.append('_');
          }
       }
 
-      return DkStrings.trim(sb.toString(), '_');
-   }
+      int start = 0;
+      int end = sb.length();
 
-   private static boolean isValidFieldKey(String key) {
-      return key != null && fieldKeyPattern.matcher(key).matches();
+      while (start < end && sb.charAt(start) == '_') {
+         ++start;
+      }
+      while (end > start && sb.charAt(end - 1) == '_') {
+         --end;
+      }
+
+      return sb.substring(start, end);
    }
 
-   private String getRelativePath(File f) {
-      return f.getPath().substring(rootPath.length() + 1);
+   private static boolean isWordChar(char ch) {
+      return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
    }
 
    /**
-    * @param c character
-    * @return true if given character is ["] or [']. Otherwise false.
+    * @return true if the key is like `\w+(\.\w+)*`, for example `welcome` or `errors.required`.
     */
-   private boolean isDash(char c) {
-      return c == '"' || c == '\'';
+   private static boolean isValidLangKey(String key) {
+      boolean expectWordChar = true;
+
+      for (int index = 0, N = key.length(); index < N; ++index) {
+         char ch = key.charAt(index);
+
+         if (ch == '.' && !expectWordChar) {
+            expectWordChar = true;
+         }
+         else if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_') {
+            expectWordChar = false;
+         }
+         else {
+            return false;
+         }
+      }
+
+      return !expectWordChar;
+   }
+
+   private String getRelativePath(File f) {
+      return f.getPath().substring(rootPath.length() + 1);
    }
 
    public static void main(String... args) {
@@ -0,0 +1,343 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds lang calls like `{{__('com.welcome')}}`, `@lang("com.welcome")`, `__(Langs::com.welcome)` in lines,
+ * collects their keys and replaces them with reference to constant in `Langs` class.
+ *
+ * All prefixes are found in one pass over each line via Aho-Corasick automaton,
+ * keys are validated by hand-written checks, and each replaced call is recorded as a patch of the source.
+ *
+ * This is thread-safe since the automaton is not modified after construction.
+ */
+class LangCallScanner {
+   private static final String NAMESPACE = "App\\Http\\Constants\\";
+   private static final String LANGS = "Langs::";
+
+   private final String[] prefixes;
+   private final String[] suffixes;
+
+   // Automaton with failure links folded in: state -> ascii char -> next state
+   private final int[][] transitions;
+   // state -> indices of prefixes which end at the state
+   private final int[][] outputs;
+
+   /**
+    * @param prefixes start of lang calls, like `{{__(`. Each prefix must be ascii and end with `(`.
+    * @param suffixes end of lang call of each prefix, like `)}}`. Each suffix must start with `)`.
+    */
+   LangCallScanner(String[] prefixes, String[] suffixes) {
+      this.prefixes = prefixes;
+      this.suffixes = suffixes;
+
+      List<int[]> gotos = new ArrayList<>();
+      List<List<Integer>> ends = new ArrayList<>();
+      gotos.add(newState());
+      ends.add(new ArrayList<>());
+
+      for (int prefixIndex = 0; prefixIndex < prefixes.length; ++prefixIndex) {
+         String prefix = prefixes[prefixIndex];
+
+         if (!prefix.endsWith("(") || !suffixes[prefixIndex].startsWith(")")) {
+            throw new IllegalArgumentException("Invalid prefix or suffix: " + prefix + ", " + suffixes[prefixIndex]);
+         }
+
+         int state = 0;
+
+         for (int index = 0, N = prefix.length(); index < N; ++index) {
+            char ch = prefix.charAt(index);
+
+            if (ch >= 128) {
+               throw new IllegalArgumentException("Require ascii prefix: " + prefix);
+            }
+            if (gotos.get(state)[ch] < 0) {
+               gotos.get(state)[ch] = gotos.size();
+               gotos.add(newState());
+               ends.add(new ArrayList<>());
+            }
+
+            state = gotos.get(state)[ch];
+         }
+
+         ends.get(state).add(prefixIndex);
+      }
+
+      // Breadth-first: fill missing transitions with transitions of failure state
+      int stateCount = gotos.size();
+      int[] failures = new int[stateCount];
+      int[] queue = new int[stateCount];
+      int head = 0;
+      int tail = 0;
+
+      for (int ch = 0; ch < 128; ++ch) {
+         int next = gotos.get(0)[ch];
+
+         if (next < 0) {
+            gotos.get(0)[ch] = 0;
+         }
+         else {
+            queue[tail++] = next;
+         }
+      }
+
+      while (head < tail) {
+         int state = queue[head++];
+         int[] transition = gotos.get(state);
+         int[] failureTransition = gotos.get(failures[state]);
+
+         ends.get(state).addAll(ends.get(failures[state]));
+
+         for (int ch = 0; ch < 128; ++ch) {
+            int next = transition[ch];
+
+            if (next < 0) {
+               transition[ch] = failureTransition[ch];
+            }
+            else {
+               failures[next] = failureTransition[ch];
+               queue[tail++] = next;
+            }
+         }
+      }
+
+      transitions = gotos.toArray(new int[0][]);
+      outputs = new int[stateCount][];
+
+      for (int state = 0; state < stateCount; ++state) {
+         outputs[state] = ends.get(state).stream().mapToInt(Integer::intValue).toArray();
+      }
+   }
+
+   private static int[] newState() {
+      int[] transition = new int[128];
+      Arrays.fill(transition, -1);
+      return transition;
+   }
+
+   /**
+    * Replace lang calls in the source and collect their keys. Lines are scanned separately, that is,
+    * a lang call must be in one line.
+    *
+    * @param filePath path of the source, only for logging.
+    * @param requestFullPath true if replacement is full path to lang key, otherwise Langs::key is used.
+    * @param result_keys collected keys are appended to this.
+    * @param warnings messages of invalid targets are appended to this, so caller decides when to log them.
+    * @return number of replaced lang calls.
+    */
+   int replaceAndCollect(String filePath, SourceFile source, boolean requestFullPath,
+                         LangKeyBuffer result_keys, List<String> warnings) {
+      final char[] chars = source.chars();
+      final int N = source.length();
+      int replacedItemCount = 0;
+
+      for (int lineStart = 0; lineStart < N; ) {
+         int lineEnd = lineStart;
+
+         while (lineEnd < N && chars[lineEnd] != '\n') {
+            ++lineEnd;
+         }
+
+         replacedItemCount += scanLine(filePath, source, lineStart, lineEnd, requestFullPath, result_keys, warnings);
+         lineStart = lineEnd + 1;
+      }
+
+      return replacedItemCount;
+   }
+
+   /**
+    * Scan line in [lineStart, lineEnd) of the source, replaced calls are recorded as patches of the source.
+    *
+    * @return number of replaced lang calls.
+    */
+   private int scanLine(String filePath, SourceFile source, int lineStart, int lineEnd, boolean requestFullPath,
+                        LangKeyBuffer result_keys, List<String> warnings) {
+      final char[] line = source.chars();
+      int replacedCount = 0;
+      int replacedIndex = lineStart;
+      int state = 0;
+
+      for (int index = lineStart; index < lineEnd; ++index) {
+         char ch = line[index];
+         state = ch < 128 ? transitions[state][ch] : 0;
+
+         for (int prefixIndex : outputs[state]) {
+            final int startIndex = index + 1 - prefixes[prefixIndex].length();
+
+            // Inside a replaced call
+            if (startIndex < replacedIndex) {
+               continue;
+            }
+
+            // target is prefix(any_string_which_dost_not_contain_close_bracket)suffix
+            final int keyStart = index + 1;
+            final int keyEnd = indexOf(line, ')', keyStart, lineEnd);
+            final String suffix = suffixes[prefixIndex];
+
+            if (keyEnd <= keyStart || !startsWith(line, keyEnd, lineEnd, suffix)) {
+               continue;
+            }
+
+            // Locate `file.key` inside ()
+            int fileKeyStart = -1;
+            int langKeyEnd = keyEnd;
+
+            if (keyEnd - keyStart >= 5 && isQuote(line[keyStart]) && isQuote(line[keyEnd - 1])
+               && isDottedKey(line, keyStart + 1, keyEnd - 1)) {
+               fileKeyStart = keyStart + 1;
+               langKeyEnd = keyEnd - 1;
+            }
+            else {
+               int nameStart = skipLangsClass(line, keyStart, lineEnd);
+
+               if (nameStart >= 0 && isDottedKey(line, nameStart, keyEnd)) {
+                  fileKeyStart = nameStart;
+               }
+               else if (nameStart < 0 || !isFieldName(line, nameStart, keyEnd)) {
+                  warnings.add(String.format("   - [WARN] Inspected invalid target [%s] in [%s].",
+                     new String(line, startIndex, keyEnd + suffix.length() - startIndex), filePath));
+               }
+            }
+
+            if (fileKeyStart < 0) {
+               continue;
+            }
+
+            final int dotIndex = indexOf(line, '.', fileKeyStart, langKeyEnd);
+
+            // collect key of file and lang
+            result_keys.add(new String(line, fileKeyStart, dotIndex - fileKeyStart),
+               new String(line, dotIndex + 1, langKeyEnd - dotIndex - 1));
+
+            appendLangReference(source.replace(keyStart, keyEnd), line, fileKeyStart, langKeyEnd, requestFullPath);
+            replacedIndex = keyEnd;
+
+            ++replacedCount;
+         }
+      }
+
+      return replacedCount;
+   }
+
+   /**
+    * Append like `\App\Http\Constants\Langs::com_welcome` or `Langs::com_welcome` for key `com.welcome`.
+    */
+   private static void appendLangReference(StringBuilder out, char[] line, int keyStart, int keyEnd,
+                                           boolean requestFullPath) {
+      if (requestFullPath) {
+         out.append('\\').append(NAMESPACE);
+      }
+      out.append(LANGS);
+
+      // Field name is the key with `.` replaced by `_`, and without leading/trailing `_`
+      while (keyStart < keyEnd && isUnderscoreOrDot(line[keyStart])) {
+         ++keyStart;
+      }
+      while (keyEnd > keyStart && isUnderscoreOrDot(line[keyEnd - 1])) {
+         --keyEnd;
+      }
+      for (int index = keyStart; index < keyEnd; ++index) {
+         char ch = line[index];
+         out.append(ch == '.' ? '_' : ch);
+      }
+   }
+
+   /**
+    * @return index after `Langs::` when content from `from` starts with `Langs::`, `App\Http\Constants\Langs::`
+    *         or `\App\Http\Constants\Langs::`. Otherwise -1.
+    */
+   private static int skipLangsClass(char[] line, int from, int to) {
+      if (startsWith(line, from, to, NAMESPACE)) {
+         from += NAMESPACE.length();
+      }
+      else if (from < to && line[from] == '\\' && startsWith(line, from + 1, to, NAMESPACE)) {
+         from += NAMESPACE.length() + 1;
+      }
+
+      return startsWith(line, from, to, LANGS) ? from + LANGS.length() : -1;
+   }
+
+   /**
+    * @return true if content in [from, to) is like `\w+\.\w+`.
+    */
+   private static boolean isDottedKey(char[] line, int from, int to) {
+      int dotIndex = -1;
+
+      for (int index = from; index < to; ++index) {
+         char ch = line[index];
+
+         if (ch == '.') {
+            if (dotIndex >= 0) {
+               return false;
+            }
+            dotIndex = index;
+         }
+         else if (!isWordChar(ch)) {
+            return false;
+         }
+      }
+
+      return dotIndex > from && dotIndex < to - 1;
+   }
+
+   /**
+    * @return true if content in [from, to) is like `\w+(_\w+)+`, that is, a word which contains `_` at inside.
+    */
+   private static boolean isFieldName(char[] line, int from, int to) {
+      boolean hasInnerUnderscore = false;
+
+      for (int index = from; index < to; ++index) {
+         char ch = line[index];
+
+         if (!isWordChar(ch)) {
+            return false;
+         }
+         if (ch == '_' && index > from && index < to - 1) {
+            hasInnerUnderscore = true;
+         }
+      }
+
+      return hasInnerUnderscore;
+   }
+
+   /**
+    * @return index of the char in [from, to), or -1 if not found.
+    */
+   private static int indexOf(char[] line, char target, int from, int to) {
+      for (int index = from; index < to; ++index) {
+         if (line[index] == target) {
+            return index;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @return true if content in [from, to) starts with the prefix.
+    */
+   private static boolean startsWith(char[] line, int from, int to, String prefix) {
+      final int N = prefix.length();
+
+      if (to - from < N) {
+         return false;
+      }
+      for (int index = 0; index < N; ++index) {
+         if (line[from + index] != prefix.charAt(index)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean isWordChar(char ch) {
+      return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+   }
+
+   private static boolean isUnderscoreOrDot(char ch) {
+      return ch == '_' || ch == '.';
+   }
+
+   private static boolean isQuote(char ch) {
+      return ch == '"' || ch == '\'';
+   }
+}
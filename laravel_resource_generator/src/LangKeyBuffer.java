@@ -0,0 +1,41 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Append-only list of collected lang keys (pairs of filename and lang key, like `com` and `welcome`).
+ * Files only append their keys while being scanned, and the whole list is grouped into a map once at the end,
+ * so cost of collecting is linear in number of lang calls.
+ *
+ * Note: this is not thread-safe, each worker should own one.
+ */
+class LangKeyBuffer {
+   private final List<String> fileKeys = new ArrayList<>();
+   private final List<String> langKeys = new ArrayList<>();
+
+   void add(String fileKey, String langKey) {
+      fileKeys.add(fileKey);
+      langKeys.add(langKey);
+   }
+
+   void addAll(LangKeyBuffer other) {
+      fileKeys.addAll(other.fileKeys);
+      langKeys.addAll(other.langKeys);
+   }
+
+   /**
+    * @return map of filename -> set_of_lang_key, like: com -> welcome
+    */
+   Map<String, Set<String>> toFile2Keys() {
+      Map<String, Set<String>> file2keys = new TreeMap<>();
+
+      for (int index = 0, N = fileKeys.size(); index < N; ++index) {
+         file2keys.computeIfAbsent(fileKeys.get(index), k -> new HashSet<>()).add(langKeys.get(index));
+      }
+
+      return file2keys;
+   }
+}
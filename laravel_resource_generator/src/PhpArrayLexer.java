@@ -0,0 +1,398 @@
+import java.util.Arrays;
+
+/**
+ * Streaming lexer of the array literal which is returned by a lang file, like:
+ * <pre>{@code
+ *    <?php
+ *    return [
+ *       'welcome' => 'Xin chào', "bye" => "Tạm \"biệt\"",
+ *       'errors' => [
+ *          'required' => 'Bắt buộc', // comment
+ *       ],
+ *    ];
+ * }</pre>
+ *
+ * Content is scanned once, char by char, and only key and value of each entry are allocated.
+ * Handles escaped quotes, multi-line values, several entries in one line, comments, `[...]` and `array(...)`.
+ * Keys of nested arrays are joined by `.` like Laravel does, for example `errors.required`.
+ *
+ * Value of an entry is text between quotes for a string literal (escapes are kept as is),
+ * otherwise the source text of the expression, like `'a' . 'b'`.
+ *
+ * Note: this is not thread-safe, each worker should own one.
+ */
+class PhpArrayLexer {
+   private String content;
+   private int N;
+   private int pos;
+
+   // Offset after open bracket of returned array, and offset of its close bracket
+   private int arrayStart;
+   private int arrayEnd;
+
+   // Found entries, only entries which have string key are collected
+   private int entryCount;
+   private String[] keys = new String[64];
+   private String[] values = new String[64];
+   private int[] keyStarts = new int[64];
+   private int[] valueEnds = new int[64];
+
+   // Bounds of last lexed string literal
+   private int stringStart;
+   private int stringEnd;
+   // Offset after last token (not space or comment) of last skipped expression
+   private int lastTokenEnd;
+
+   /**
+    * Lex array which is returned by given php content.
+    *
+    * @return true if whole returned array was lexed. Otherwise false (entries before the error are still available).
+    */
+   boolean lex(String content) {
+      this.content = content;
+      this.N = content.length();
+      this.pos = 0;
+      this.arrayStart = -1;
+      this.arrayEnd = -1;
+      this.entryCount = 0;
+
+      if (!skipToReturn()) {
+         return false;
+      }
+
+      skipSpaces();
+      char close = openArray();
+
+      if (close == 0) {
+         return false;
+      }
+
+      arrayStart = pos;
+
+      if (!lexArray("", close)) {
+         return false;
+      }
+
+      arrayEnd = pos - 1;
+
+      return true;
+   }
+
+   int entryCount() {
+      return entryCount;
+   }
+
+   /**
+    * @return key of the entry, like `welcome` or `errors.required` for nested entry.
+    */
+   String key(int index) {
+      return keys[index];
+   }
+
+   String value(int index) {
+      return values[index];
+   }
+
+   /**
+    * @return offset of first char of the key (its quote) in content.
+    */
+   int keyStart(int index) {
+      return keyStarts[index];
+   }
+
+   /**
+    * @return offset after last char of the value in content.
+    */
+   int valueEnd(int index) {
+      return valueEnds[index];
+   }
+
+   /**
+    * @return offset after open bracket of returned array, or -1 if not found.
+    */
+   int arrayStart() {
+      return arrayStart;
+   }
+
+   /**
+    * @return offset of close bracket of returned array, or -1 if not found.
+    */
+   int arrayEnd() {
+      return arrayEnd;
+   }
+
+   /**
+    * Move to after `return` keyword which is not inside comment or string.
+    */
+   private boolean skipToReturn() {
+      while (pos < N) {
+         char ch = content.charAt(pos);
+
+         if (skipComment()) {
+            continue;
+         }
+         if (ch == '\'' || ch == '"') {
+            if (!skipString()) {
+               return false;
+            }
+            continue;
+         }
+         if (content.startsWith("return", pos) && (pos == 0 || !isWordChar(content.charAt(pos - 1)))
+            && (pos + 6 >= N || !isWordChar(content.charAt(pos + 6)))) {
+            pos += 6;
+            return true;
+         }
+
+         ++pos;
+      }
+
+      return false;
+   }
+
+   /**
+    * Move to after `[` or `array(` at current position.
+    *
+    * @return close bracket of the array, or 0 if there is no array at current position.
+    */
+   private char openArray() {
+      if (pos < N && content.charAt(pos) == '[') {
+         ++pos;
+         return ']';
+      }
+      if (content.regionMatches(true, pos, "array", 0, 5)) {
+         int from = pos;
+         pos += 5;
+         skipSpaces();
+
+         if (pos < N && content.charAt(pos) == '(') {
+            ++pos;
+            return ')';
+         }
+
+         pos = from;
+      }
+
+      return 0;
+   }
+
+   /**
+    * Lex entries until the close bracket. After this, position is after the close bracket.
+    *
+    * @param keyPrefix prefix of keys of entries of this array, like `errors.` for nested array.
+    */
+   private boolean lexArray(String keyPrefix, char close) {
+      while (true) {
+         skipSpaces();
+
+         if (pos >= N) {
+            return false;
+         }
+
+         char ch = content.charAt(pos);
+
+         if (ch == close) {
+            ++pos;
+            return true;
+         }
+         if (ch == ',') {
+            ++pos;
+            continue;
+         }
+
+         // key => value, or value only
+         int keyStart = pos;
+         String key = null;
+
+         if (ch == '\'' || ch == '"') {
+            if (!skipString()) {
+               return false;
+            }
+
+            int afterString = pos;
+            skipSpaces();
+
+            if (content.startsWith("=>", pos)) {
+               key = content.substring(stringStart, stringEnd);
+            }
+            else {
+               pos = afterString;
+            }
+         }
+
+         if (key == null) {
+            // Value only, or key which is not a string literal: skip whole entry
+            if (!skipExpression(close)) {
+               return false;
+            }
+            continue;
+         }
+
+         pos += 2;
+         skipSpaces();
+
+         char nestedClose = openArray();
+
+         if (nestedClose != 0) {
+            if (!lexArray(keyPrefix + key + '.', nestedClose)) {
+               return false;
+            }
+            continue;
+         }
+
+         int valueStart = pos;
+
+         if (!skipExpression(close)) {
+            return false;
+         }
+
+         addEntry(keyPrefix + key, valueOf(valueStart, lastTokenEnd), keyStart, lastTokenEnd);
+      }
+   }
+
+   /**
+    * Skip an expression until `,` or `close` at same depth. Position is at the `,` or `close` after this.
+    * Note: `=>` does not stop it, so an entry which has no string key is skipped as a whole.
+    */
+   private boolean skipExpression(char close) {
+      int depth = 0;
+      lastTokenEnd = pos;
+
+      while (pos < N) {
+         char ch = content.charAt(pos);
+
+         if (skipComment()) {
+            continue;
+         }
+         if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+            ++pos;
+            continue;
+         }
+         if (depth == 0 && (ch == ',' || ch == close)) {
+            return true;
+         }
+
+         if (ch == '\'' || ch == '"') {
+            if (!skipString()) {
+               return false;
+            }
+         }
+         else {
+            if (ch == '(' || ch == '[' || ch == '{') {
+               ++depth;
+            }
+            else if (ch == ')' || ch == ']' || ch == '}') {
+               if (--depth < 0) {
+                  return false;
+               }
+            }
+            ++pos;
+         }
+
+         lastTokenEnd = pos;
+      }
+
+      return false;
+   }
+
+   /**
+    * @return text between quotes if the value is only a string literal, otherwise source text of the value.
+    */
+   private String valueOf(int valueStart, int valueEnd) {
+      char ch = valueStart < valueEnd ? content.charAt(valueStart) : 0;
+
+      if (ch == '\'' || ch == '"') {
+         int from = pos;
+         pos = valueStart;
+         skipString();
+         boolean isLiteral = pos == valueEnd;
+         pos = from;
+
+         if (isLiteral) {
+            return content.substring(valueStart + 1, valueEnd - 1);
+         }
+      }
+
+      return content.substring(valueStart, valueEnd);
+   }
+
+   /**
+    * Skip string literal at current position, and remember bounds of its content.
+    */
+   private boolean skipString() {
+      char quote = content.charAt(pos++);
+      stringStart = pos;
+
+      while (pos < N) {
+         char ch = content.charAt(pos);
+
+         if (ch == '\\') {
+            pos += 2;
+         }
+         else if (ch == quote) {
+            stringEnd = pos++;
+            return true;
+         }
+         else {
+            ++pos;
+         }
+      }
+
+      return false;
+   }
+
+   private void skipSpaces() {
+      while (pos < N) {
+         char ch = content.charAt(pos);
+
+         if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+            ++pos;
+         }
+         else if (!skipComment()) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Skip comment (`// ...`, `# ...`, `/* ... *\/`) at current position.
+    *
+    * @return true if a comment was skipped.
+    */
+   private boolean skipComment() {
+      char ch = content.charAt(pos);
+
+      if (ch == '#' || (ch == '/' && pos + 1 < N && content.charAt(pos + 1) == '/')) {
+         int lineEnd = content.indexOf('\n', pos);
+         pos = lineEnd < 0 ? N : lineEnd + 1;
+         return true;
+      }
+      if (ch == '/' && pos + 1 < N && content.charAt(pos + 1) == '*') {
+         int commentEnd = content.indexOf("*/", pos + 2);
+         pos = commentEnd < 0 ? N : commentEnd + 2;
+         return true;
+      }
+
+      return false;
+   }
+
+   private void addEntry(String key, String value, int keyStart, int valueEnd) {
+      if (entryCount == keys.length) {
+         int capacity = entryCount << 1;
+
+         keys = Arrays.copyOf(keys, capacity);
+         values = Arrays.copyOf(values, capacity);
+         keyStarts = Arrays.copyOf(keyStarts, capacity);
+         valueEnds = Arrays.copyOf(valueEnds, capacity);
+      }
+
+      keys[entryCount] = key;
+      values[entryCount] = value;
+      keyStarts[entryCount] = keyStart;
+      valueEnds[entryCount] = valueEnd;
+      ++entryCount;
+   }
+
+   private static boolean isWordChar(char ch) {
+      return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+   }
+}
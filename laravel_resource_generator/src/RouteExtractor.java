@@ -0,0 +1,332 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts routes from a route file (like `routes/web.php`) in one pass over a stream of tokens. Handles:
+ * <pre>{@code
+ *    Route::group(['prefix' => '/admin/', 'middleware' => []], function () {
+ *       Route::get('/users/{id}/edit', 'UserController@edit');
+ *       Route::prefix('shop')->name('shop.')->group(function () {
+ *          Route::match(['get', 'post'],
+ *             '/cart/add', [CartController::class, 'add']);
+ *       });
+ *    });
+ * }</pre>
+ * Prefixes of enclosing groups (`Route::group([...'prefix' => ...])` or `Route::prefix(...)->group()`)
+ * are kept in a stack, and definitions may span several lines since only tokens are considered.
+ *
+ * Note: this is not thread-safe, each worker should own one.
+ */
+class RouteExtractor {
+   private static final int EOF = 0;
+   private static final int IDENT = 1;
+   private static final int STRING = 2;
+   private static final int DOUBLE_COLON = 3;
+   private static final int ARROW = 4;
+   private static final int DOUBLE_ARROW = 5;
+   private static final int SYMBOL = 6;
+
+   private String content;
+   private int N;
+   private int pos;
+
+   // Current token: type, bounds (content of string is without quotes), and char if symbol
+   private int tokenType;
+   private int tokenStart;
+   private int tokenEnd;
+   private char symbol;
+
+   // Prefixes of groups which enclose current position, and depth of brace which opened their body
+   private final List<String> groupPrefixes = new ArrayList<>();
+   private final List<Integer> groupDepths = new ArrayList<>();
+
+   /**
+    * Extract routes which are under a group with non-empty prefix.
+    *
+    * @param basePrefix prefix of whole file (like `api` for routes/api.php), or empty string.
+    * @param result_routes prefix and suffix of each route are appended to this,
+    *                      like: [admin, users/{id}/edit, shop, cart/add...]. Both are trimmed `/`.
+    */
+   void extract(String content, String basePrefix, List<String> result_routes) {
+      this.content = content;
+      this.N = content.length();
+      this.pos = 0;
+      groupPrefixes.clear();
+      groupDepths.clear();
+
+      // Whole file is like the body of a group with the prefix, so its routes are collected even outside of groups
+      if (basePrefix.length() > 0) {
+         groupPrefixes.add(trimSlash(basePrefix));
+         groupDepths.add(0);
+      }
+
+      int braceDepth = 0;
+
+      // State of current `Route::...` statement, which may be a chain like Route::prefix()->name()->group()
+      boolean inRoute = false;
+      String method = null;
+      int depth = 0;
+      int argIndex = 0;
+      String routePrefix = null;
+      String uri = null;
+      boolean isRoute = false;
+      // 0: none, 1: after 'prefix' key in group array, 2: after 'prefix' =>
+      int prefixKeyState = 0;
+
+      while (nextToken() != EOF) {
+         if (tokenType == SYMBOL && symbol == '}') {
+            --braceDepth;
+
+            while (groupDepths.size() > 0 && braceDepth < groupDepths.get(groupDepths.size() - 1)) {
+               groupDepths.remove(groupDepths.size() - 1);
+               groupPrefixes.remove(groupPrefixes.size() - 1);
+            }
+            continue;
+         }
+
+         if (!inRoute) {
+            if (tokenType == SYMBOL && symbol == '{') {
+               ++braceDepth;
+            }
+            else if (tokenType == IDENT && isRouteFacade() && nextToken() == DOUBLE_COLON && nextToken() == IDENT) {
+               inRoute = true;
+               method = tokenText();
+               depth = 0;
+               argIndex = 0;
+               routePrefix = null;
+               uri = null;
+               isRoute = isRouteMethod(method);
+               prefixKeyState = 0;
+            }
+            continue;
+         }
+
+         switch (tokenType) {
+            case SYMBOL: {
+               if (symbol == '(' || symbol == '[') {
+                  ++depth;
+               }
+               else if (symbol == ')' || symbol == ']') {
+                  --depth;
+               }
+               else if (symbol == ',' && depth == 1) {
+                  ++argIndex;
+               }
+               else if (symbol == '{') {
+                  ++braceDepth;
+
+                  // Body of the group closure, routes inside it are under prefix of the group
+                  if ("group".equals(method) && depth > 0) {
+                     groupPrefixes.add(joinPrefix(currentPrefix(), routePrefix));
+                     groupDepths.add(braceDepth);
+                     inRoute = false;
+                  }
+               }
+               else if (symbol == ';' && depth <= 0) {
+                  if (isRoute && uri != null) {
+                     addRoute(joinPrefix(currentPrefix(), routePrefix), uri, result_routes);
+                  }
+                  inRoute = false;
+               }
+               prefixKeyState = 0;
+               break;
+            }
+            case ARROW: {
+               if (depth == 0 && nextToken() == IDENT) {
+                  method = tokenText();
+                  argIndex = 0;
+                  isRoute |= isRouteMethod(method);
+               }
+               prefixKeyState = 0;
+               break;
+            }
+            case DOUBLE_ARROW: {
+               prefixKeyState = prefixKeyState == 1 ? 2 : 0;
+               break;
+            }
+            case STRING: {
+               if (depth == 1 && argIndex == 0 && "prefix".equals(method)) {
+                  routePrefix = tokenText();
+               }
+               else if (depth == 1 && uri == null && isRouteMethod(method) && argIndex == uriArgIndexOf(method)) {
+                  uri = tokenText();
+               }
+               else if (depth == 2 && argIndex == 0 && "group".equals(method)) {
+                  if (prefixKeyState == 2) {
+                     routePrefix = tokenText();
+                  }
+                  else if (tokenIs("prefix")) {
+                     prefixKeyState = 1;
+                     break;
+                  }
+               }
+               prefixKeyState = 0;
+               break;
+            }
+            default: {
+               prefixKeyState = 0;
+            }
+         }
+      }
+   }
+
+   private static boolean isRouteMethod(String method) {
+      switch (method) {
+         case "get":
+         case "post":
+         case "put":
+         case "patch":
+         case "delete":
+         case "options":
+         case "any":
+         case "match":
+         case "view":
+         case "redirect":
+         case "permanentRedirect": {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * @return index of argument which is uri of the route, like `/files` in `Route::match(['get', 'post'], '/files', ...)`.
+    */
+   private static int uriArgIndexOf(String method) {
+      return "match".equals(method) ? 1 : 0;
+   }
+
+   private String currentPrefix() {
+      return groupPrefixes.size() == 0 ? "" : groupPrefixes.get(groupPrefixes.size() - 1);
+   }
+
+   private static String joinPrefix(String prefix, String subPrefix) {
+      subPrefix = subPrefix == null ? "" : trimSlash(subPrefix);
+
+      if (prefix.length() == 0) {
+         return subPrefix;
+      }
+      if (subPrefix.length() == 0) {
+         return prefix;
+      }
+      return prefix + '/' + subPrefix;
+   }
+
+   private static void addRoute(String prefix, String uri, List<String> result_routes) {
+      // Only collect routes in a group
+      if (prefix.length() > 0) {
+         result_routes.add(prefix);
+         result_routes.add(trimSlash(uri));
+      }
+   }
+
+   private static String trimSlash(String s) {
+      int start = 0;
+      int end = s.length();
+
+      while (start < end && (s.charAt(start) == '/' || s.charAt(start) == ' ')) {
+         ++start;
+      }
+      while (end > start && (s.charAt(end - 1) == '/' || s.charAt(end - 1) == ' ')) {
+         --end;
+      }
+
+      return s.substring(start, end);
+   }
+
+   /**
+    * @return true if current token is `Route` or full name of it, like `\Illuminate\Support\Facades\Route`.
+    */
+   private boolean isRouteFacade() {
+      return tokenIs("Route") || (tokenEnd - tokenStart > 6 && content.startsWith("\\Route", tokenEnd - 6));
+   }
+
+   private boolean tokenIs(String text) {
+      return tokenEnd - tokenStart == text.length() && content.startsWith(text, tokenStart);
+   }
+
+   private String tokenText() {
+      return content.substring(tokenStart, tokenEnd);
+   }
+
+   /**
+    * Move to next token, spaces and comments are skipped.
+    *
+    * @return type of the token.
+    */
+   private int nextToken() {
+      while (pos < N) {
+         char ch = content.charAt(pos);
+
+         if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+            ++pos;
+         }
+         else if (ch == '#' || (ch == '/' && pos + 1 < N && content.charAt(pos + 1) == '/')) {
+            int lineEnd = content.indexOf('\n', pos);
+            pos = lineEnd < 0 ? N : lineEnd + 1;
+         }
+         else if (ch == '/' && pos + 1 < N && content.charAt(pos + 1) == '*') {
+            int commentEnd = content.indexOf("*/", pos + 2);
+            pos = commentEnd < 0 ? N : commentEnd + 2;
+         }
+         else {
+            break;
+         }
+      }
+
+      if (pos >= N) {
+         return tokenType = EOF;
+      }
+
+      char ch = content.charAt(pos);
+      tokenStart = pos;
+
+      if (ch == '\'' || ch == '"') {
+         tokenStart = ++pos;
+
+         while (pos < N && content.charAt(pos) != ch) {
+            pos += content.charAt(pos) == '\\' ? 2 : 1;
+         }
+
+         tokenEnd = Math.min(pos, N);
+         ++pos;
+
+         return tokenType = STRING;
+      }
+      if (isWordChar(ch) || ch == '$') {
+         do {
+            ++pos;
+         }
+         while (pos < N && isWordChar(content.charAt(pos)));
+
+         tokenEnd = pos;
+
+         return tokenType = IDENT;
+      }
+      if (pos + 1 < N) {
+         char next = content.charAt(pos + 1);
+
+         if (ch == ':' && next == ':') {
+            tokenEnd = pos += 2;
+            return tokenType = DOUBLE_COLON;
+         }
+         if (ch == '-' && next == '>') {
+            tokenEnd = pos += 2;
+            return tokenType = ARROW;
+         }
+         if (ch == '=' && next == '>') {
+            tokenEnd = pos += 2;
+            return tokenType = DOUBLE_ARROW;
+         }
+      }
+
+      symbol = ch;
+      tokenEnd = ++pos;
+
+      return tokenType = SYMBOL;
+   }
+
+   private static boolean isWordChar(char ch) {
+      return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_' || ch == '\\';
+   }
+}
@@ -0,0 +1,240 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of what was extracted from each source file (route entries, lang entries...) at previous runs,
+ * so a file which was not changed since then is not read and parsed again.
+ *
+ * A file is unchanged when its size and last-modified time equal its entry. When only last-modified time was changed
+ * (for example, file was touched or checked out again), crc32 of its content is compared to decide it.
+ *
+ * Binary format of cache file:
+ * <pre>{@code
+ *    int magic, int version, int entryCount,
+ *    entryCount * {string path, long size, long lastModified, long crc32, int valueCount, valueCount * string}
+ * }</pre>
+ * Where each string is written as int byteCount followed by its UTF-8 bytes.
+ * This is thread-safe.
+ */
+class ScanCache {
+   private static final int MAGIC = 0x47524353;
+   // Bump this whenever what is extracted from source files changes, so entries of old cache files are not reused
+   private static final int VERSION = 5;
+
+   private static final String[] NO_VALUES = {};
+
+   private static class Entry {
+      final long size;
+      final long lastModified;
+      final long hash;
+      final String[] values;
+
+      Entry(long size, long lastModified, long hash, String[] values) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.hash = hash;
+         this.values = values;
+      }
+   }
+
+   private final File cacheFile;
+   private final String rootPath;
+
+   // Entries which were loaded from cache file
+   private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+   // Entries of files which were seen at this run, only these are saved, so deleted files are dropped
+   private final Map<String, Entry> seenEntries = new ConcurrentHashMap<>();
+
+   /**
+    * @param rootPath paths in cache file are relative to this, so the cache is still valid after project was moved.
+    */
+   ScanCache(File cacheFile, String rootPath) {
+      this.cacheFile = cacheFile;
+      this.rootPath = rootPath;
+   }
+
+   /**
+    * Load entries from cache file. Missing, broken or old-version cache file is ignored.
+    */
+   void load() {
+      if (!cacheFile.exists()) {
+         return;
+      }
+
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+         if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return;
+         }
+
+         for (int count = in.readInt(); count > 0; --count) {
+            String path = readString(in);
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long hash = in.readLong();
+            String[] values = new String[in.readInt()];
+
+            for (int index = 0; index < values.length; ++index) {
+               values[index] = readString(in);
+            }
+
+            entries.put(path, new Entry(size, lastModified, hash, values));
+         }
+      }
+      catch (IOException e) {
+         // All files will be parsed again
+         entries.clear();
+      }
+   }
+
+   /**
+    * Write entries of files which were seen at this run to a temporary file, then replace the cache file with it.
+    */
+   void save() throws IOException {
+      File parentDir = cacheFile.getAbsoluteFile().getParentFile();
+
+      if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+         throw new IOException("Could not create folder " + parentDir.getPath());
+      }
+
+      File tmpFile = new File(cacheFile.getPath() + ".tmp");
+
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+         Map<String, Entry> sortedEntries = new TreeMap<>(seenEntries);
+
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(sortedEntries.size());
+
+         for (Map.Entry<String, Entry> item : sortedEntries.entrySet()) {
+            Entry entry = item.getValue();
+
+            writeString(out, item.getKey());
+            out.writeLong(entry.size);
+            out.writeLong(entry.lastModified);
+            out.writeLong(entry.hash);
+            out.writeInt(entry.values.length);
+
+            for (String value : entry.values) {
+               writeString(out, value);
+            }
+         }
+      }
+
+      Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+   }
+
+   /**
+    * @return values which were extracted from the file at previous run, or null if the file was changed since then.
+    */
+   String[] get(File file) throws IOException {
+      String path = relativePathOf(file);
+      // Entry which was recorded at this run is newer, for example, when this is reused while watching
+      Entry entry = seenEntries.get(path);
+
+      if (entry == null) {
+         entry = entries.get(path);
+      }
+
+      if (entry == null || entry.size != file.length()) {
+         return null;
+      }
+
+      long lastModified = file.lastModified();
+
+      if (entry.lastModified != lastModified) {
+         if (entry.hash != checksum(file)) {
+            return null;
+         }
+
+         entry = new Entry(entry.size, lastModified, entry.hash, entry.values);
+      }
+
+      seenEntries.put(path, entry);
+
+      return entry.values;
+   }
+
+   /**
+    * Record values which were extracted from current content of the file. Caller passes fingerprint of the content
+    * which it has read (or written), so the file is not read again only to compute its crc32.
+    *
+    * @param size number of bytes of the content.
+    * @param lastModified last-modified time of the file when the content was read (or after it was written).
+    * @param hash crc32 of the content, see `checksum(byte[], int)`.
+    */
+   void put(File file, long size, long lastModified, long hash, String[] values) {
+      seenEntries.put(relativePathOf(file), new Entry(size, lastModified, hash, values.length == 0 ? NO_VALUES : values));
+   }
+
+   /**
+    * Forget the file, for example after it was rewritten, so it is parsed again at next run.
+    */
+   void remove(File file) {
+      String path = relativePathOf(file);
+
+      entries.remove(path);
+      seenEntries.remove(path);
+   }
+
+   private String relativePathOf(File file) {
+      String path = file.getAbsolutePath();
+      return path.startsWith(rootPath) ? path.substring(rootPath.length()) : path;
+   }
+
+   /**
+    * @return crc32 of [0, byteCount) of the bytes.
+    */
+   static long checksum(byte[] bytes, int byteCount) {
+      CRC32 crc32 = new CRC32();
+      crc32.update(bytes, 0, byteCount);
+      return crc32.getValue();
+   }
+
+   private static long checksum(File file) throws IOException {
+      CRC32 crc32 = new CRC32();
+      byte[] buffer = new byte[16 * 1024];
+
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+         int readCount;
+
+         while ((readCount = in.read(buffer)) > 0) {
+            crc32.update(buffer, 0, readCount);
+         }
+      }
+
+      return crc32.getValue();
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private static String readString(DataInputStream in) throws IOException {
+      int byteCount = in.readInt();
+
+      if (byteCount < 0) {
+         throw new EOFException("Broken string length " + byteCount);
+      }
+
+      byte[] bytes = new byte[byteCount];
+      in.readFully(bytes);
+
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+}
@@ -0,0 +1,183 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Content of a source file which is decoded into a reused `char[]`, and edited by patches at offsets
+ * instead of replacing whole lines. When the file is saved, spans between patches and texts of patches
+ * are appended into one pre-sized buffer which is written at once.
+ * <pre>{@code
+ *    source.load(file);
+ *    source.replace(start, end).append("Langs::com_welcome");
+ *    source.save(file, writer);
+ * }</pre>
+ * Unedited content (line endings, missing trailing linefeed...) is written back as is.
+ *
+ * Note: this is not thread-safe since buffers are reused between files, each thread should own one.
+ */
+class SourceFile {
+   private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+   private ByteBuffer byteBuffer = ByteBuffer.allocate(16 * 1024);
+   private CharBuffer charBuffer = CharBuffer.allocate(16 * 1024);
+   private int length;
+   private long lastModified;
+
+   // Patch i replaces [patchStarts[i], patchEnds[i]) of content with texts[textStarts[i], textStarts[i + 1])
+   private int patchCount;
+   private int[] patchStarts = new int[64];
+   private int[] patchEnds = new int[64];
+   private int[] textStarts = new int[65];
+   private final StringBuilder texts = new StringBuilder(1024);
+
+   void load(File file) throws IOException {
+      // Taken before reading, so a change while reading makes the file differ from its cache entry
+      lastModified = file.lastModified();
+
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         int size = (int) channel.size();
+
+         if (byteBuffer.capacity() < size) {
+            byteBuffer = ByteBuffer.allocate(Math.max(size, byteBuffer.capacity() << 1));
+         }
+
+         byteBuffer.clear();
+
+         while (byteBuffer.position() < size) {
+            if (channel.read(byteBuffer) < 0) {
+               break;
+            }
+         }
+
+         byteBuffer.flip();
+      }
+
+      // Number of chars of UTF-8 content is at most its number of bytes
+      if (charBuffer.capacity() < byteBuffer.limit()) {
+         charBuffer = CharBuffer.allocate(Math.max(byteBuffer.limit(), charBuffer.capacity() << 1));
+      }
+
+      charBuffer.clear();
+      decoder.reset();
+      decoder.decode(byteBuffer, charBuffer, true);
+      decoder.flush(charBuffer);
+
+      length = charBuffer.position();
+      patchCount = 0;
+      texts.setLength(0);
+   }
+
+   /**
+    * @return content of the file, only [0, length()) is valid. Patches are not applied to this.
+    */
+   char[] chars() {
+      return charBuffer.array();
+   }
+
+   int length() {
+      return length;
+   }
+
+   /**
+    * @return number of bytes of loaded file.
+    */
+   int byteCount() {
+      return byteBuffer.limit();
+   }
+
+   /**
+    * @return last-modified time of loaded file before it was read.
+    */
+   long lastModified() {
+      return lastModified;
+   }
+
+   /**
+    * @return crc32 of bytes of loaded file.
+    */
+   long checksum() {
+      return ScanCache.checksum(byteBuffer.array(), byteBuffer.limit());
+   }
+
+   /**
+    * Replace content in [start, end) with text which is appended to returned builder until next patch.
+    * Patches must not overlap.
+    */
+   StringBuilder replace(int start, int end) {
+      if (patchCount == patchStarts.length) {
+         int capacity = patchCount << 1;
+
+         patchStarts = Arrays.copyOf(patchStarts, capacity);
+         patchEnds = Arrays.copyOf(patchEnds, capacity);
+         textStarts = Arrays.copyOf(textStarts, capacity + 1);
+      }
+
+      patchStarts[patchCount] = start;
+      patchEnds[patchCount] = end;
+      textStarts[patchCount] = texts.length();
+      ++patchCount;
+
+      return texts;
+   }
+
+   /**
+    * Insert text which is appended to returned builder until next patch at the offset.
+    */
+   StringBuilder insert(int offset) {
+      return replace(offset, offset);
+   }
+
+   boolean isModified() {
+      return patchCount > 0;
+   }
+
+   /**
+    * Write patched content to the file (only when it differs from the file on disk).
+    *
+    * @return true if the file was written.
+    */
+   boolean save(File file, ChangedContentWriter writer) throws IOException {
+      textStarts[patchCount] = texts.length();
+
+      // Patches are added in order while scanning, except few insertions (like imports) before them
+      int[] order = new int[patchCount];
+      int patchedLength = length + texts.length();
+
+      for (int index = 0; index < patchCount; ++index) {
+         int patchIndex = index;
+         int start = patchStarts[index];
+
+         while (patchIndex > 0 && patchStarts[order[patchIndex - 1]] > start) {
+            order[patchIndex] = order[patchIndex - 1];
+            --patchIndex;
+         }
+
+         order[patchIndex] = index;
+         patchedLength -= patchEnds[index] - start;
+      }
+
+      char[] content = charBuffer.array();
+      StringBuilder out = writer.begin();
+      out.ensureCapacity(patchedLength);
+      int copiedIndex = 0;
+
+      for (int patchIndex : order) {
+         out.append(content, copiedIndex, patchStarts[patchIndex] - copiedIndex);
+         out.append(texts, textStarts[patchIndex], textStarts[patchIndex + 1]);
+         copiedIndex = patchEnds[patchIndex];
+      }
+
+      out.append(content, copiedIndex, length - copiedIndex);
+
+      return writer.commit(file);
+   }
+}